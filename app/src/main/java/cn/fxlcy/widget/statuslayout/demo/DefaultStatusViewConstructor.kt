@@ -5,11 +5,10 @@ import android.content.res.XmlResourceParser
 import android.view.Gravity
 import android.view.View
 import android.view.ViewGroup
-import android.widget.TextView
 import cn.fxlcy.widget.statuslayout.IStatusChildView
-import cn.fxlcy.widget.statuslayout.StatusChildViewConstructor
+import cn.fxlcy.widget.statuslayout.ISharedStatusChildViewConstructor
 
-class DefaultStatusViewConstructor : StatusChildViewConstructor {
+class DefaultStatusViewConstructor : ISharedStatusChildViewConstructor {
     override fun inflate(context: Context?, parser: XmlResourceParser?) {
     }
 
@@ -18,7 +17,7 @@ class DefaultStatusViewConstructor : StatusChildViewConstructor {
     }
 
     override fun newErrorView(context: Context?): IStatusChildView {
-        return TextView(context).apply {
+        return StatusTextView(context).apply {
             this.text = "加载失败"
             this.textSize = 30f
             this.gravity = Gravity.CENTER
@@ -29,7 +28,7 @@ class DefaultStatusViewConstructor : StatusChildViewConstructor {
     }
 
     override fun newEmptyView(context: Context?): IStatusChildView {
-        return TextView(context).apply {
+        return StatusTextView(context).apply {
             this.text = "空数据"
             this.textSize = 30f
             this.gravity = Gravity.CENTER
@@ -40,7 +39,7 @@ class DefaultStatusViewConstructor : StatusChildViewConstructor {
     }
 
     override fun newLoadingView(context: Context?): IStatusChildView {
-        return TextView(context).apply {
+        return LoadingView(context).apply {
             this.text = "加载中..."
             this.textSize = 30f
             this.gravity = Gravity.CENTER
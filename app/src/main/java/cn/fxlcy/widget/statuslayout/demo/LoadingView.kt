@@ -0,0 +1,33 @@
+package cn.fxlcy.widget.statuslayout.demo
+
+import android.content.Context
+import android.graphics.Canvas
+import android.graphics.Color
+import android.graphics.Paint
+import cn.fxlcy.widget.statuslayout.IProgress
+
+class LoadingView(context: Context?) : StatusTextView(context), IProgress {
+    private val mPaint = Paint().apply {
+        color = Color.parseColor("#6200EE")
+    }
+
+    private var mProgress = 0f
+
+    private val mBarHeight = 4 * resources.displayMetrics.density
+
+    override fun setProgress(progress: Float) {
+        if (mProgress != progress) {
+            mProgress = progress
+            //只重绘进度条,不重新布局
+            invalidate()
+        }
+    }
+
+    override fun onDraw(canvas: Canvas) {
+        super.onDraw(canvas)
+
+        if (mProgress > 0f) {
+            canvas.drawRect(0f, height - mBarHeight, width * mProgress, height.toFloat(), mPaint)
+        }
+    }
+}
@@ -19,9 +19,21 @@ class MainActivity: AppCompatActivity() {
         mSl.setOnErrorRetryClickListener {
             mWebView.reload()
         }
+        mSl.setRetryBackoff(1000, 2f, 30000)
+        mSl.setAutoRetryOnReconnect(true)
 
         mWebView = findViewById(R.id.webview)
 
+        mWebView.webChromeClient = object : WebChromeClient() {
+            override fun onProgressChanged(view: WebView?, newProgress: Int) {
+                super.onProgressChanged(view, newProgress)
+
+                if (mSl.whenStatus == StatusLayout.LayoutStatus.LOADING) {
+                    mSl.loadingProgress(newProgress / 100f)
+                }
+            }
+        }
+
         mWebView.webViewClient = object :WebViewClient(){
 
             private var mError = false
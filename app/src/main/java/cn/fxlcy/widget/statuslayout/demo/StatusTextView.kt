@@ -0,0 +1,8 @@
+package cn.fxlcy.widget.statuslayout.demo
+
+import android.content.Context
+import android.widget.TextView
+import cn.fxlcy.widget.statuslayout.IText
+
+//实现IText后StatusLayout才会设置状态文字,api28以上会预先计算文字布局
+open class StatusTextView(context: Context?) : TextView(context), IText
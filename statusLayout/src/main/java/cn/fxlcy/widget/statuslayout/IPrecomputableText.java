@@ -0,0 +1,12 @@
+package cn.fxlcy.widget.statuslayout;
+
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+
+//文字显示在内部TextView中的IText(例如图标加文字的容器),api28以上StatusLayout在后台线程计算文字布局后直接设置给这个TextView
+//同时实现IStatusPayloadView时文字由StatusLayout设置,onBindPayload的changedFields不包含FIELD_TEXT
+public interface IPrecomputableText extends IText {
+    @NonNull
+    TextView getTextView();
+}
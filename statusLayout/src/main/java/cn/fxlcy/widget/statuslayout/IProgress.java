@@ -0,0 +1,9 @@
+package cn.fxlcy.widget.statuslayout;
+
+import androidx.annotation.FloatRange;
+
+//由loading view实现,每帧最多回调一次;实现中只能invalidate,不要触发requestLayout
+//每次切换到loading时先回调setProgress(0),离开loading后不再回调
+public interface IProgress {
+    void setProgress(@FloatRange(from = 0, to = 1) float progress);
+}
@@ -0,0 +1,6 @@
+package cn.fxlcy.widget.statuslayout;
+
+public interface IRetryCountdownChildView extends IRetryChildView {
+    //退避倒计时,remainingMillis为0时表示可以重试
+    void onRetryCountdown(long remainingMillis);
+}
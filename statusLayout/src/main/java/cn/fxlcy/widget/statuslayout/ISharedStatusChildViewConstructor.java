@@ -0,0 +1,5 @@
+package cn.fxlcy.widget.statuslayout;
+
+//没有布局相关状态的constructor,同一个配置下所有布局共享一个实例,inflate收到的是applicationContext
+public interface ISharedStatusChildViewConstructor extends StatusChildViewConstructor {
+}
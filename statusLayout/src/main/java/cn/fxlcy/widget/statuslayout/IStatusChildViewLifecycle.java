@@ -0,0 +1,16 @@
+package cn.fxlcy.widget.statuslayout;
+
+//由状态view或IStatusChildView实现,用于开始/停止自身的动画和释放资源
+public interface IStatusChildViewLifecycle {
+    //即将设置为VISIBLE,显示动画开始之前
+    void onBeforeShow();
+
+    //成为当前状态并且对用户可见
+    void onShown();
+
+    //不再是当前状态,或者StatusLayout对用户不可见
+    void onHidden();
+
+    //从StatusLayout中移除
+    void onRecycled();
+}
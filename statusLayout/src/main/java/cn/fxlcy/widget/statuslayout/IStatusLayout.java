@@ -0,0 +1,53 @@
+package cn.fxlcy.widget.statuslayout;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+//StatusLayout和StatusAttachment共同的状态切换api
+public interface IStatusLayout {
+    @StatusLayout.LayoutStatus
+    int getStatus();
+
+    void error();
+
+    void error(Object obj);
+
+    //payload为null时使用状态view的默认内容
+    void errorPayload(@Nullable StatusPayload payload);
+
+    void empty();
+
+    void empty(Object obj);
+
+    void emptyPayload(@Nullable StatusPayload payload);
+
+    void loading();
+
+    void loading(Object obj);
+
+    void loadingPayload(@Nullable StatusPayload payload);
+
+    void normal();
+
+    void setOnErrorRetryClickListener(View.OnClickListener l);
+
+    void setOnEmptyRetryClickListener(View.OnClickListener l);
+
+    void setOnStatusChangedListener(StatusLayout.OnStatusChangedListener l);
+
+    void addOnStatusEventListener(@NonNull StatusLayout.OnStatusEventListener listener);
+
+    void removeOnStatusEventListener(@NonNull StatusLayout.OnStatusEventListener listener);
+
+    //连续重试失败后的指数退避,initialMillis<=0表示不退避,maxMillis<=0表示不限制(最长24小时)
+    void setRetryBackoff(long initialMillis, float multiplier, long maxMillis);
+
+    //网络恢复时自动重试,需要权限ACCESS_NETWORK_STATE
+    void setAutoRetryOnReconnect(boolean autoRetry);
+
+    boolean isRetrying();
+
+    long getRetryBackoffRemaining();
+}
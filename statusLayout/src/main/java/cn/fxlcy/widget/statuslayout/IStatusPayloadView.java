@@ -0,0 +1,9 @@
+package cn.fxlcy.widget.statuslayout;
+
+import androidx.annotation.NonNull;
+
+//状态view绑定StatusPayload,只在有字段变化时回调,changedFields为StatusPayload.FIELD_*的组合
+//实现了这个接口的状态view不再通过IText设置文字,同时实现IPrecomputableText时除外
+public interface IStatusPayloadView {
+    void onBindPayload(@NonNull StatusPayload payload, @StatusPayload.Field int changedFields);
+}
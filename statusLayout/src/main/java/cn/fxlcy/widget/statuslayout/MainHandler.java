@@ -0,0 +1,18 @@
+package cn.fxlcy.widget.statuslayout;
+
+import android.os.Handler;
+import android.os.Looper;
+
+//所有StatusLayout共用一个主线程Handler
+final class MainHandler {
+
+    //后台线程也会调用get(),类加载时初始化保证可见性
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+
+    private MainHandler() {
+    }
+
+    static Handler get() {
+        return sHandler;
+    }
+}
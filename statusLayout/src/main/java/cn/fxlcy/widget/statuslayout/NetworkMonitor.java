@@ -0,0 +1,168 @@
+package cn.fxlcy.widget.statuslayout;
+
+import android.Manifest;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+
+//所有StatusLayout共用一个网络监听
+final class NetworkMonitor {
+
+    private final static String TAG = "NetworkMonitor";
+
+    interface Callback {
+        void onNetworkAvailable();
+    }
+
+    private static NetworkMonitor sInstance;
+
+    private final Context mContext;
+    private final ConnectivityManager mConnectivityManager;
+    private final ArrayList<Callback> mCallbacks = new ArrayList<>();
+    private boolean mConnected;
+
+    //API 24以上使用默认网络回调,以下使用CONNECTIVITY_ACTION广播
+    private ConnectivityManager.NetworkCallback mNetworkCallback;
+    private BroadcastReceiver mReceiver;
+
+    private final Runnable mCheckConnectivity = new Runnable() {
+        @Override
+        public void run() {
+            onConnectivityChanged();
+        }
+    };
+
+    private NetworkMonitor(Context context) {
+        mContext = context;
+        mConnectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        mConnected = isConnected();
+    }
+
+    static void register(Context context, Callback callback) {
+        context = context.getApplicationContext();
+
+        if (context.checkCallingOrSelfPermission(Manifest.permission.ACCESS_NETWORK_STATE)
+                != PackageManager.PERMISSION_GRANTED) {
+            Log.w(TAG, "auto retry requires permission " + Manifest.permission.ACCESS_NETWORK_STATE);
+            return;
+        }
+
+        if (sInstance == null) {
+            NetworkMonitor monitor = new NetworkMonitor(context);
+            if (monitor.mConnectivityManager == null) {
+                return;
+            }
+            monitor.start();
+            sInstance = monitor;
+        }
+
+        if (!sInstance.mCallbacks.contains(callback)) {
+            sInstance.mCallbacks.add(callback);
+        }
+    }
+
+    static void unregister(Callback callback) {
+        if (sInstance == null) {
+            return;
+        }
+
+        sInstance.mCallbacks.remove(callback);
+
+        if (sInstance.mCallbacks.isEmpty()) {
+            sInstance.stop();
+            sInstance = null;
+        }
+    }
+
+    private void start() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            mNetworkCallback = new ConnectivityManager.NetworkCallback() {
+                //在ConnectivityThread回调,切换到主线程处理
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    MainHandler.get().post(mCheckConnectivity);
+                }
+
+                @Override
+                public void onLost(@NonNull Network network) {
+                    MainHandler.get().post(mCheckConnectivity);
+                }
+            };
+            mConnectivityManager.registerDefaultNetworkCallback(mNetworkCallback);
+        } else {
+            mReceiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    onConnectivityChanged();
+                }
+            };
+            registerConnectivityReceiver();
+        }
+    }
+
+    //API 24以下没有registerDefaultNetworkCallback,只能使用已废弃的广播
+    @SuppressWarnings("deprecation")
+    private void registerConnectivityReceiver() {
+        mContext.registerReceiver(mReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    private void stop() {
+        MainHandler.get().removeCallbacks(mCheckConnectivity);
+
+        if (mNetworkCallback != null) {
+            mConnectivityManager.unregisterNetworkCallback(mNetworkCallback);
+            mNetworkCallback = null;
+        }
+
+        if (mReceiver != null) {
+            mContext.unregisterReceiver(mReceiver);
+            mReceiver = null;
+        }
+    }
+
+    private boolean isConnected() {
+        if (mConnectivityManager == null) {
+            return false;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            Network network = mConnectivityManager.getActiveNetwork();
+            NetworkCapabilities capabilities = network != null ? mConnectivityManager.getNetworkCapabilities(network) : null;
+            return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+        }
+        return isConnectedLegacy();
+    }
+
+    //API 24以下没有NetworkCapabilities可用
+    @SuppressWarnings("deprecation")
+    private boolean isConnectedLegacy() {
+        NetworkInfo info = mConnectivityManager.getActiveNetworkInfo();
+        return info != null && info.isConnected();
+    }
+
+    private void onConnectivityChanged() {
+        boolean connected = isConnected();
+        boolean reconnected = connected && !mConnected;
+        mConnected = connected;
+
+        if (reconnected) {
+            //回调中可能会unregister
+            Callback[] callbacks = mCallbacks.toArray(new Callback[0]);
+            for (Callback callback : callbacks) {
+                callback.onNetworkAvailable();
+            }
+        }
+    }
+}
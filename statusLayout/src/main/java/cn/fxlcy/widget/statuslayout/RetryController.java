@@ -0,0 +1,248 @@
+package cn.fxlcy.widget.statuslayout;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.View;
+
+//重试控制:重试进行中忽略点击,连续失败后指数退避,网络恢复时自动重试
+final class RetryController implements NetworkMonitor.Callback {
+
+    private final static long COUNTDOWN_INTERVAL = 1000;
+
+    //maxMillis<=0(不限制)时退避时间的实际上限,保证uptimeMillis + backoff不会溢出
+    private final static long MAX_UNLIMITED_BACKOFF = 24 * 60 * 60 * 1000L;
+
+    //StatusLayout和StatusAttachment共用重试控制
+    interface Host {
+        Context getContext();
+
+        @StatusLayout.LayoutStatus
+        int getWhenStatus();
+
+        //包装后的重试点击即将回调用户的监听,有loading view时切换到loading
+        void onRetryStarted();
+
+        void performRetry();
+
+        void dispatchRetryCountdown(long remainingMillis);
+    }
+
+    private final Host mHost;
+
+    private boolean mInFlight = false;
+    private int mFailureCount = 0;
+
+    private long mInitialBackoff = 0;
+    private float mBackoffMultiplier = 2f;
+    private long mMaxBackoff = 0;
+
+    //退避结束时间(uptimeMillis),0表示没有退避
+    private long mBackoffDeadline = 0;
+
+    private boolean mAutoRetryOnReconnect = false;
+    private boolean mPendingAutoRetry = false;
+    private boolean mAttached = false;
+
+    private final Runnable mTick = new Runnable() {
+        @Override
+        public void run() {
+            tick();
+        }
+    };
+
+    RetryController(Host host) {
+        mHost = host;
+    }
+
+    void setBackoff(long initialMillis, float multiplier, long maxMillis) {
+        mInitialBackoff = initialMillis;
+        mBackoffMultiplier = multiplier;
+        mMaxBackoff = maxMillis;
+    }
+
+    void setAutoRetryOnReconnect(boolean autoRetry) {
+        if (mAutoRetryOnReconnect == autoRetry) {
+            return;
+        }
+
+        mAutoRetryOnReconnect = autoRetry;
+
+        if (!mAttached) {
+            return;
+        }
+
+        if (autoRetry) {
+            NetworkMonitor.register(mHost.getContext(), this);
+        } else {
+            mPendingAutoRetry = false;
+            NetworkMonitor.unregister(this);
+        }
+    }
+
+    boolean isInFlight() {
+        return mInFlight;
+    }
+
+    long getRemainingBackoff() {
+        if (mBackoffDeadline == 0) {
+            return 0;
+        }
+        return Math.max(0, mBackoffDeadline - SystemClock.uptimeMillis());
+    }
+
+    //重试进行中或退避中忽略点击
+    View.OnClickListener wrapRetryListener(final View.OnClickListener l) {
+        return view -> {
+            if (!acquire()) {
+                return;
+            }
+            mHost.onRetryStarted();
+            l.onClick(view);
+            onRetryDispatched();
+        };
+    }
+
+    static void setRetryListener(View view, View.OnClickListener clickListener) {
+        if (clickListener != null) {
+            if (view instanceof IRetryChildView) {
+                ((IRetryChildView) view).setOnRetryClickListener(clickListener);
+            } else if (view != null) {
+                view.setOnClickListener(clickListener);
+            }
+        }
+    }
+
+    //返回false表示本次重试被忽略
+    private boolean acquire() {
+        if (mInFlight || getRemainingBackoff() > 0) {
+            return false;
+        }
+
+        mInFlight = true;
+        mPendingAutoRetry = false;
+        return true;
+    }
+
+    //重试回调返回后布局仍没有进入LOADING(例如只提示了离线,或者没有loading view),释放进行中状态,
+    //否则之后的点击和网络恢复时的自动重试都会被一直忽略
+    private void onRetryDispatched() {
+        if (mInFlight && mHost.getWhenStatus() != StatusLayout.LayoutStatus.LOADING) {
+            mInFlight = false;
+        }
+    }
+
+    void onStatusRequested(int status) {
+        switch (status) {
+            case StatusLayout.LayoutStatus.NORMAL:
+            case StatusLayout.LayoutStatus.EMPTY:
+                mInFlight = false;
+                mFailureCount = 0;
+                stopCountdown();
+                break;
+            case StatusLayout.LayoutStatus.ERROR:
+                if (mInFlight) {
+                    mInFlight = false;
+                    mFailureCount++;
+                    startCountdown(computeBackoff(mFailureCount));
+                }
+                break;
+            case StatusLayout.LayoutStatus.LOADING:
+            case StatusLayout.LayoutStatus.NONE:
+                break;
+        }
+    }
+
+    private long computeBackoff(int failureCount) {
+        if (mInitialBackoff <= 0) {
+            return 0;
+        }
+
+        double backoff = mInitialBackoff * Math.pow(mBackoffMultiplier, failureCount - 1);
+        if (mMaxBackoff > 0 && backoff > mMaxBackoff) {
+            return mMaxBackoff;
+        }
+        //不限制上限时多次失败后会超出long的范围
+        if (backoff >= MAX_UNLIMITED_BACKOFF) {
+            return MAX_UNLIMITED_BACKOFF;
+        }
+        return (long) backoff;
+    }
+
+    private void startCountdown(long backoff) {
+        if (backoff <= 0) {
+            return;
+        }
+
+        mBackoffDeadline = SystemClock.uptimeMillis() + backoff;
+
+        if (mAttached) {
+            MainHandler.get().removeCallbacks(mTick);
+            tick();
+        }
+    }
+
+    private void stopCountdown() {
+        if (mBackoffDeadline == 0) {
+            return;
+        }
+
+        mBackoffDeadline = 0;
+        MainHandler.get().removeCallbacks(mTick);
+        mHost.dispatchRetryCountdown(0);
+    }
+
+    private void tick() {
+        long remaining = getRemainingBackoff();
+        mHost.dispatchRetryCountdown(remaining);
+
+        if (remaining > 0) {
+            //对齐到整秒刷新倒计时
+            long delay = remaining % COUNTDOWN_INTERVAL;
+            MainHandler.get().postDelayed(mTick, delay == 0 ? COUNTDOWN_INTERVAL : delay);
+            return;
+        }
+
+        mBackoffDeadline = 0;
+
+        if (mPendingAutoRetry) {
+            mPendingAutoRetry = false;
+            mHost.performRetry();
+        }
+    }
+
+    @Override
+    public void onNetworkAvailable() {
+        if (mInFlight || mHost.getWhenStatus() != StatusLayout.LayoutStatus.ERROR) {
+            return;
+        }
+
+        if (getRemainingBackoff() > 0) {
+            mPendingAutoRetry = true;
+        } else {
+            mHost.performRetry();
+        }
+    }
+
+    void onAttached() {
+        mAttached = true;
+
+        if (mAutoRetryOnReconnect) {
+            NetworkMonitor.register(mHost.getContext(), this);
+        }
+
+        if (mBackoffDeadline != 0) {
+            tick();
+        }
+    }
+
+    void onDetached() {
+        mAttached = false;
+
+        //避免共享Handler持有已经detach的布局
+        MainHandler.get().removeCallbacks(mTick);
+
+        if (mAutoRetryOnReconnect) {
+            NetworkMonitor.unregister(this);
+        }
+    }
+}
@@ -0,0 +1,548 @@
+package cn.fxlcy.widget.statuslayout;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.reflect.Constructor;
+
+//不增加额外的ViewGroup:状态view以target的位置和LayoutParams插入target的父布局,切换时与target互相替换
+//OVERLAY_INVISIBLE/OVERLAY_VISIBLE的状态view覆盖在target上,需要父布局允许子view重叠(FrameLayout、RelativeLayout、ConstraintLayout等)
+//是否对用户可见通过attach状态和父布局的global layout判断,窗口隐藏(例如Activity进入后台)但没有重新布局时不会回调onHidden
+//payload、文字预计算、重试和生命周期回调与StatusLayout共用StatusPayloadState和RetryController;
+//不支持StatusLayout的隐藏动画、setAnimable、RETENTION_RELEASE、loadingProgress和load
+public final class StatusAttachment implements IStatusLayout {
+
+    private final View mTarget;
+    private final StatusLayoutConfig mConfig;
+    private StatusChildViewConstructor mConstructor;
+
+    private @StatusLayout.LayoutStatus
+    int mStatus = StatusLayout.LayoutStatus.NORMAL;
+
+    private View mErrorView;
+    private View mEmptyView;
+    private View mLoadingView;
+
+    private IStatusChildView mErrorChildView;
+    private IStatusChildView mEmptyChildView;
+    private IStatusChildView mLoadingChildView;
+
+    private View mCurrentView;
+    private boolean mCurrentShown = false;
+
+    private final StatusPayloadState mErrorPayload = new StatusPayloadState();
+    private final StatusPayloadState mEmptyPayload = new StatusPayloadState();
+    private final StatusPayloadState mLoadingPayload = new StatusPayloadState();
+
+    private View.OnClickListener mOnErrorRetryClickListener;
+    private View.OnClickListener mOnEmptyRetryClickListener;
+
+    private StatusLayout.OnStatusChangedListener mOnStatusChangedListener;
+
+    private final StatusEventDispatcher mStatusEventDispatcher = new StatusEventDispatcher(this);
+
+    private final RetryController mRetryController = new RetryController(new RetryController.Host() {
+        @Override
+        public Context getContext() {
+            return mTarget.getContext();
+        }
+
+        @Override
+        public int getWhenStatus() {
+            return mStatus;
+        }
+
+        @Override
+        public void onRetryStarted() {
+            if (mLoadingView != null) {
+                loading();
+            }
+        }
+
+        @Override
+        public void performRetry() {
+            if (mOnErrorRetryClickListener != null && mErrorView != null) {
+                mOnErrorRetryClickListener.onClick(mErrorView);
+            }
+        }
+
+        @Override
+        public void dispatchRetryCountdown(long remainingMillis) {
+            if (mErrorView instanceof IRetryCountdownChildView) {
+                ((IRetryCountdownChildView) mErrorView).onRetryCountdown(remainingMillis);
+            }
+        }
+    });
+
+    //正在执行的显示动画
+    private Animator mShowAnim;
+    //复用的显示动画
+    private Animator mShowAnimator;
+    private int mTransitionFromStatus = StatusLayout.LayoutStatus.NONE;
+    private boolean mIsCancellingShowAnim = false;
+
+    private final Animator.AnimatorListener mShowAnimListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            onShowAnimEnd();
+        }
+    };
+
+    private boolean mAttached = false;
+    private boolean mIsVisibleToUser = false;
+
+    private final View.OnAttachStateChangeListener mAttachStateListener = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            onAttachedToWindow();
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            onDetachedFromWindow();
+        }
+    };
+
+    //父布局或祖先的可见性变化会触发重新布局
+    private final ViewTreeObserver.OnGlobalLayoutListener mGlobalLayoutListener = new ViewTreeObserver.OnGlobalLayoutListener() {
+        @Override
+        public void onGlobalLayout() {
+            updateVisibleToUser();
+        }
+    };
+
+    private StatusAttachment(View target, StatusLayoutConfig config) {
+        mTarget = target;
+        mConfig = config;
+        mCurrentView = target;
+    }
+
+    static StatusAttachment attach(@NonNull View target, @Nullable StatusLayoutConfig config) {
+        Object tag = target.getTag(R.id.status_attachment);
+        if (tag instanceof StatusAttachment) {
+            return (StatusAttachment) tag;
+        }
+
+        if (!(target.getParent() instanceof ViewGroup)) {
+            throw new IllegalStateException("target must have a parent");
+        }
+
+        if (config == null) {
+            config = StatusLayoutConfig.obtain(target.getContext());
+        }
+
+        StatusAttachment attachment = new StatusAttachment(target, config);
+        target.setTag(R.id.status_attachment, attachment);
+        target.addOnAttachStateChangeListener(attachment.mAttachStateListener);
+        if (target.getWindowToken() != null) {
+            attachment.onAttachedToWindow();
+        }
+        return attachment;
+    }
+
+    @NonNull
+    public View getTarget() {
+        return mTarget;
+    }
+
+    @Override
+    public @StatusLayout.LayoutStatus
+    int getStatus() {
+        return mStatus;
+    }
+
+    @Override
+    public void error() {
+        errorPayload(StatusPayload.DEFAULT);
+    }
+
+    @Override
+    public void error(Object obj) {
+        errorPayload(StatusPayloadState.toPayload(getContext(), obj, mErrorPayload));
+    }
+
+    @Override
+    public void errorPayload(@Nullable StatusPayload payload) {
+        if (payload == null) {
+            payload = StatusPayload.DEFAULT;
+        }
+
+        if (mErrorView == null) {
+            mErrorChildView = getStatusViewConstructor().newErrorView(getContext());
+            mErrorView = addStatusView(mErrorChildView.getView(), StatusLayout.LayoutStatus.ERROR);
+            RetryController.setRetryListener(mErrorView, mOnErrorRetryClickListener);
+        }
+
+        changeStatus(StatusLayout.LayoutStatus.ERROR, mErrorView);
+
+        mErrorPayload.apply(mErrorView, mErrorChildView, payload);
+    }
+
+    @Override
+    public void empty() {
+        emptyPayload(StatusPayload.DEFAULT);
+    }
+
+    @Override
+    public void empty(Object obj) {
+        emptyPayload(StatusPayloadState.toPayload(getContext(), obj, mEmptyPayload));
+    }
+
+    @Override
+    public void emptyPayload(@Nullable StatusPayload payload) {
+        if (payload == null) {
+            payload = StatusPayload.DEFAULT;
+        }
+
+        if (mEmptyView == null) {
+            mEmptyChildView = getStatusViewConstructor().newEmptyView(getContext());
+            mEmptyView = addStatusView(mEmptyChildView.getView(), StatusLayout.LayoutStatus.EMPTY);
+            RetryController.setRetryListener(mEmptyView, mOnEmptyRetryClickListener);
+        }
+
+        changeStatus(StatusLayout.LayoutStatus.EMPTY, mEmptyView);
+
+        mEmptyPayload.apply(mEmptyView, mEmptyChildView, payload);
+    }
+
+    @Override
+    public void loading() {
+        loadingPayload(StatusPayload.DEFAULT);
+    }
+
+    @Override
+    public void loading(Object obj) {
+        loadingPayload(StatusPayloadState.toPayload(getContext(), obj, mLoadingPayload));
+    }
+
+    @Override
+    public void loadingPayload(@Nullable StatusPayload payload) {
+        if (payload == null) {
+            payload = StatusPayload.DEFAULT;
+        }
+
+        if (mLoadingView == null) {
+            mLoadingChildView = getStatusViewConstructor().newLoadingView(getContext());
+            mLoadingView = addStatusView(mLoadingChildView.getView(), StatusLayout.LayoutStatus.LOADING);
+        }
+
+        changeStatus(StatusLayout.LayoutStatus.LOADING, mLoadingView);
+
+        mLoadingPayload.apply(mLoadingView, mLoadingChildView, payload);
+    }
+
+    @Override
+    public void normal() {
+        changeStatus(StatusLayout.LayoutStatus.NORMAL, mTarget);
+    }
+
+    //移除所有状态view并恢复target
+    public void detach() {
+        endShowAnim(false);
+
+        if (mAttached) {
+            onDetachedFromWindow();
+        }
+        mTarget.removeOnAttachStateChangeListener(mAttachStateListener);
+
+        if (mCurrentView != mTarget) {
+            dispatchHidden();
+            mCurrentView = mTarget;
+        }
+        mTarget.setVisibility(View.VISIBLE);
+        mStatus = StatusLayout.LayoutStatus.NORMAL;
+
+        mErrorView = removeStatusView(mErrorView, mErrorChildView);
+        mEmptyView = removeStatusView(mEmptyView, mEmptyChildView);
+        mLoadingView = removeStatusView(mLoadingView, mLoadingChildView);
+        mErrorChildView = null;
+        mEmptyChildView = null;
+        mLoadingChildView = null;
+
+        mTarget.setTag(R.id.status_attachment, null);
+    }
+
+    @Override
+    public void setOnErrorRetryClickListener(final View.OnClickListener l) {
+        mOnErrorRetryClickListener = mRetryController.wrapRetryListener(l);
+
+        RetryController.setRetryListener(mErrorView, mOnErrorRetryClickListener);
+    }
+
+    @Override
+    public void setOnEmptyRetryClickListener(final View.OnClickListener l) {
+        mOnEmptyRetryClickListener = mRetryController.wrapRetryListener(l);
+
+        RetryController.setRetryListener(mEmptyView, mOnEmptyRetryClickListener);
+    }
+
+    @Override
+    public void setOnStatusChangedListener(StatusLayout.OnStatusChangedListener l) {
+        mOnStatusChangedListener = l;
+    }
+
+    @Override
+    public void addOnStatusEventListener(@NonNull StatusLayout.OnStatusEventListener listener) {
+        mStatusEventDispatcher.add(listener);
+    }
+
+    @Override
+    public void removeOnStatusEventListener(@NonNull StatusLayout.OnStatusEventListener listener) {
+        mStatusEventDispatcher.remove(listener);
+    }
+
+    @Override
+    public void setRetryBackoff(long initialMillis, float multiplier, long maxMillis) {
+        mRetryController.setBackoff(initialMillis, multiplier, maxMillis);
+    }
+
+    @Override
+    public void setAutoRetryOnReconnect(boolean autoRetry) {
+        mRetryController.setAutoRetryOnReconnect(autoRetry);
+    }
+
+    @Override
+    public boolean isRetrying() {
+        return mRetryController.isInFlight();
+    }
+
+    @Override
+    public long getRetryBackoffRemaining() {
+        return mRetryController.getRemainingBackoff();
+    }
+
+    private void onAttachedToWindow() {
+        mAttached = true;
+        mRetryController.onAttached();
+        mTarget.getViewTreeObserver().addOnGlobalLayoutListener(mGlobalLayoutListener);
+        updateVisibleToUser();
+    }
+
+    private void onDetachedFromWindow() {
+        mAttached = false;
+        mRetryController.onDetached();
+        mTarget.getViewTreeObserver().removeOnGlobalLayoutListener(mGlobalLayoutListener);
+        setVisibleToUser(false);
+
+        mErrorPayload.flushText();
+        mEmptyPayload.flushText();
+        mLoadingPayload.flushText();
+    }
+
+    private void updateVisibleToUser() {
+        final ViewParent parent = mTarget.getParent();
+        setVisibleToUser(mAttached && mTarget.getWindowVisibility() == View.VISIBLE
+                && parent instanceof View && ((View) parent).isShown());
+    }
+
+    private void setVisibleToUser(boolean visible) {
+        if (mIsVisibleToUser == visible) {
+            return;
+        }
+
+        mIsVisibleToUser = visible;
+
+        if (visible) {
+            //显示动画中时由动画结束时回调
+            if (mShowAnim == null) {
+                dispatchShown();
+            }
+        } else {
+            endShowAnim(false);
+            dispatchHidden();
+        }
+    }
+
+    private Context getContext() {
+        return mTarget.getContext();
+    }
+
+    private StatusChildViewConstructor getStatusViewConstructor() {
+        if (mConstructor == null) {
+            mConstructor = mConfig.newStatusViewConstructor(getContext());
+        }
+        return mConstructor;
+    }
+
+    private View addStatusView(View view, @StatusLayout.LayoutStatus int status) {
+        ViewGroup parent = (ViewGroup) mTarget.getParent();
+        if (parent == null) {
+            throw new IllegalStateException("target has been removed from its parent");
+        }
+
+        view.setVisibility(View.GONE);
+
+        int index = parent.indexOfChild(mTarget);
+        if (mConfig.getOverlay(status) != StatusLayoutConfig.OVERLAY_NONE) {
+            //覆盖在target上,绘制和点击都在target之上
+            index++;
+            view.setClickable(true);
+        }
+        parent.addView(view, index, copyLayoutParams(mTarget.getLayoutParams()));
+        return view;
+    }
+
+    private static View removeStatusView(View view, IStatusChildView childView) {
+        if (view != null) {
+            if (view.getParent() instanceof ViewGroup) {
+                ((ViewGroup) view.getParent()).removeView(view);
+            }
+
+            IStatusChildViewLifecycle lifecycle = StatusPayloadState.getLifecycle(view, childView);
+            if (lifecycle != null) {
+                lifecycle.onRecycled();
+            }
+        }
+        return null;
+    }
+
+    //LayoutParams不能共享(例如ConstraintLayout会在里面保存布局信息),优先使用LayoutParams自身的拷贝构造
+    @SuppressWarnings("unchecked")
+    private static ViewGroup.LayoutParams copyLayoutParams(ViewGroup.LayoutParams source) {
+        Class<? extends ViewGroup.LayoutParams> cls = source.getClass();
+        Class<?>[] parameterTypes = {cls, ViewGroup.MarginLayoutParams.class};
+        for (Class<?> parameterType : parameterTypes) {
+            if (!parameterType.isInstance(source)) {
+                continue;
+            }
+            try {
+                Constructor<? extends ViewGroup.LayoutParams> constructor = cls.getConstructor(parameterType);
+                return constructor.newInstance(source);
+            } catch (Throwable ignored) {
+            }
+        }
+
+        if (source instanceof ViewGroup.MarginLayoutParams) {
+            return new ViewGroup.MarginLayoutParams((ViewGroup.MarginLayoutParams) source);
+        }
+        return new ViewGroup.LayoutParams(source);
+    }
+
+    private void changeStatus(@StatusLayout.LayoutStatus int status, View view) {
+        mRetryController.onStatusRequested(status);
+
+        if (mStatus == status) {
+            return;
+        }
+
+        mStatusEventDispatcher.dispatch(mStatus, status, StatusLayout.StatusEvent.PHASE_REQUESTED);
+
+        //正在执行的切换被打断
+        endShowAnim(true);
+
+        final int fromStatus = mStatus;
+        mStatusEventDispatcher.dispatch(fromStatus, status, StatusLayout.StatusEvent.PHASE_STARTED);
+
+        final View previousView = mCurrentView;
+        //覆盖状态切换回normal时,target可能一直是VISIBLE的
+        final boolean wasVisible = view.getVisibility() == View.VISIBLE;
+        final IStatusChildViewLifecycle lifecycle = StatusPayloadState.getLifecycle(view, getChildView(view));
+        if (lifecycle != null) {
+            lifecycle.onBeforeShow();
+        }
+
+        hideView(previousView, status);
+        dispatchHidden();
+        view.setVisibility(View.VISIBLE);
+
+        mCurrentView = view;
+        mStatus = status;
+        mTransitionFromStatus = fromStatus;
+
+        //用户不可见时不执行动画
+        if (!mConfig.isAnimable() || !mIsVisibleToUser || wasVisible) {
+            onShowAnimEnd();
+            return;
+        }
+
+        mShowAnim = obtainShowAnim();
+        mShowAnim.setTarget(view);
+        mShowAnim.start();
+    }
+
+    //切换到status时隐藏之前的view,target按照overlay配置设置可见性
+    private void hideView(View view, @StatusLayout.LayoutStatus int status) {
+        if (view == mTarget) {
+            view.setVisibility(mConfig.getNormalVisibility(status));
+        } else {
+            view.setVisibility(View.GONE);
+            if (status != StatusLayout.LayoutStatus.NORMAL) {
+                mTarget.setVisibility(mConfig.getNormalVisibility(status));
+            }
+        }
+    }
+
+    private Animator obtainShowAnim() {
+        if (mShowAnimator == null) {
+            mShowAnimator = mConfig.newShowAnim(getContext());
+            mShowAnimator.addListener(mShowAnimListener);
+        }
+        return mShowAnimator;
+    }
+
+    private void onShowAnimEnd() {
+        mShowAnim = null;
+
+        if (mIsVisibleToUser) {
+            dispatchShown();
+        }
+
+        if (mIsCancellingShowAnim) {
+            mStatusEventDispatcher.dispatch(mTransitionFromStatus, mStatus, StatusLayout.StatusEvent.PHASE_CANCELLED);
+        } else {
+            mStatusEventDispatcher.dispatch(mTransitionFromStatus, mStatus, StatusLayout.StatusEvent.PHASE_COMPLETED);
+            if (mOnStatusChangedListener != null) {
+                mOnStatusChangedListener.onStatusChanged(mStatus);
+            }
+        }
+    }
+
+    //结束正在执行的显示动画;cancelled为true时通知PHASE_CANCELLED
+    private void endShowAnim(boolean cancelled) {
+        if (mShowAnim != null) {
+            mIsCancellingShowAnim = cancelled;
+            mShowAnim.end();
+            mIsCancellingShowAnim = false;
+        }
+    }
+
+    //onShown和onHidden成对回调
+    private void dispatchShown() {
+        if (!mCurrentShown && mCurrentView != mTarget) {
+            IStatusChildViewLifecycle lifecycle = StatusPayloadState.getLifecycle(mCurrentView, getChildView(mCurrentView));
+            if (lifecycle != null) {
+                mCurrentShown = true;
+                lifecycle.onShown();
+            }
+        }
+    }
+
+    private void dispatchHidden() {
+        if (mCurrentShown) {
+            mCurrentShown = false;
+            IStatusChildViewLifecycle lifecycle = StatusPayloadState.getLifecycle(mCurrentView, getChildView(mCurrentView));
+            if (lifecycle != null) {
+                lifecycle.onHidden();
+            }
+        }
+    }
+
+    private IStatusChildView getChildView(View view) {
+        if (view == mErrorView) {
+            return mErrorChildView;
+        } else if (view == mEmptyView) {
+            return mEmptyChildView;
+        } else if (view == mLoadingView) {
+            return mLoadingChildView;
+        }
+        return null;
+    }
+}
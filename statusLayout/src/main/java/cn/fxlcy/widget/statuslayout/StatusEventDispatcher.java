@@ -0,0 +1,83 @@
+package cn.fxlcy.widget.statuslayout;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+//StatusLayout和StatusAttachment共用的状态事件分发
+final class StatusEventDispatcher {
+
+    private static final StatusLayout.OnStatusEventListener[] EMPTY_LISTENERS = new StatusLayout.OnStatusEventListener[0];
+
+    private final IStatusLayout mSource;
+
+    //copy on write,分发时不需要复制
+    private StatusLayout.OnStatusEventListener[] mListeners = EMPTY_LISTENERS;
+
+    //按分发深度复用事件对象,监听者中再切换状态时也不会覆盖外层事件
+    private StatusLayout.StatusEvent[] mEvents = new StatusLayout.StatusEvent[2];
+    private int mDepth = 0;
+
+    StatusEventDispatcher(IStatusLayout source) {
+        mSource = source;
+    }
+
+    void add(@NonNull StatusLayout.OnStatusEventListener listener) {
+        final StatusLayout.OnStatusEventListener[] listeners = mListeners;
+        for (StatusLayout.OnStatusEventListener l : listeners) {
+            if (l == listener) {
+                return;
+            }
+        }
+
+        final StatusLayout.OnStatusEventListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        mListeners = newListeners;
+    }
+
+    void remove(@NonNull StatusLayout.OnStatusEventListener listener) {
+        final StatusLayout.OnStatusEventListener[] listeners = mListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                if (listeners.length == 1) {
+                    mListeners = EMPTY_LISTENERS;
+                } else {
+                    final StatusLayout.OnStatusEventListener[] newListeners = new StatusLayout.OnStatusEventListener[listeners.length - 1];
+                    System.arraycopy(listeners, 0, newListeners, 0, i);
+                    System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                    mListeners = newListeners;
+                }
+                return;
+            }
+        }
+    }
+
+    void dispatch(@StatusLayout.LayoutStatus int oldStatus, @StatusLayout.LayoutStatus int newStatus,
+                  @StatusLayout.StatusEvent.Phase int phase) {
+        final StatusLayout.OnStatusEventListener[] listeners = mListeners;
+        if (listeners.length == 0) {
+            return;
+        }
+
+        final int depth = mDepth;
+        if (depth == mEvents.length) {
+            mEvents = Arrays.copyOf(mEvents, depth * 2);
+        }
+
+        StatusLayout.StatusEvent event = mEvents[depth];
+        if (event == null) {
+            event = new StatusLayout.StatusEvent(mSource);
+            mEvents[depth] = event;
+        }
+        event.set(oldStatus, newStatus, phase);
+
+        mDepth++;
+        try {
+            for (StatusLayout.OnStatusEventListener listener : listeners) {
+                listener.onStatusEvent(event);
+            }
+        } finally {
+            mDepth--;
+        }
+    }
+}
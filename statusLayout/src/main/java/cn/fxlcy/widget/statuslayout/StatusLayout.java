@@ -1,29 +1,33 @@
 package cn.fxlcy.widget.statuslayout;
 
 import android.animation.Animator;
-import android.animation.AnimatorInflater;
 import android.animation.AnimatorListenerAdapter;
-import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
-import android.content.res.XmlResourceParser;
+import android.graphics.Matrix;
+import android.os.Build;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.Choreographer;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
 
-import androidx.annotation.AnimatorRes;
+import androidx.annotation.AttrRes;
 import androidx.annotation.CallSuper;
+import androidx.annotation.FloatRange;
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.util.Objects;
+import java.util.concurrent.Callable;
 
-public class StatusLayout extends FrameLayout {
+public class StatusLayout extends FrameLayout implements IStatusLayout {
 
     private final static String TAG = "StatusLayout";
+    private final static boolean DEBUG = false;
 
     private @LayoutStatus
     int mStatus;
@@ -36,62 +40,128 @@ public class StatusLayout extends FrameLayout {
 
     private boolean mIsAnimable = true;
 
-    private CharSequence mErrorText;
-    private CharSequence mEmptyText;
-    private CharSequence mLoadingText;
+    private final StatusLayoutConfig mConfig;
 
-    private final @AnimatorRes
-    int mShowAnimRes;
-    private final @AnimatorRes
-    int mHideAnimRes;
-    private int mAnimDuration = 300;
+    private StatusChildViewConstructor mConstructor;
 
     private View.OnClickListener mOnErrorRetryClickListener;
     private View.OnClickListener mOnEmptyRetryClickListener;
 
-    private final String mStatusViewConstructorClassname;
-    private final int mStatusViewConstructorInflaterXml;
+    private final RetryController mRetryController = new RetryController(new RetryController.Host() {
+        @Override
+        public Context getContext() {
+            return StatusLayout.this.getContext();
+        }
 
-    private StatusChildViewConstructor mConstructor;
+        @Override
+        public int getWhenStatus() {
+            return StatusLayout.this.getWhenStatus();
+        }
+
+        @Override
+        public void onRetryStarted() {
+            if (mLoadingView != null) {
+                loading();
+            }
+        }
+
+        @Override
+        public void performRetry() {
+            if (mOnErrorRetryClickListener != null && mErrorView != null) {
+                mOnErrorRetryClickListener.onClick(mErrorView);
+            }
+        }
+
+        @Override
+        public void dispatchRetryCountdown(long remainingMillis) {
+            if (mErrorView instanceof IRetryCountdownChildView) {
+                ((IRetryCountdownChildView) mErrorView).onRetryCountdown(remainingMillis);
+            }
+        }
+    });
+
+    private final StatusLoader mLoader = new StatusLoader(this);
+
+    //小于0表示没有等待中的进度
+    private float mPendingProgress = -1;
+    private boolean mIsProgressScheduled = false;
+
+    private final Choreographer.FrameCallback mProgressFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mIsProgressScheduled = false;
+            applyLoadingProgress();
+        }
+    };
 
     public void setStatus(@LayoutStatus int status) {
+        mRetryController.onStatusRequested(status);
+
         final View view = getViewByStatus(status);
-        mCurrentView.setVisibility(GONE);
+        final View previousView = mCurrentView;
+        if (view == previousView) {
+            mStatus = status;
+            return;
+        }
+
+        dispatchBeforeShow(view);
+        hideStatusView(previousView, status);
+        dispatchHidden(previousView);
         view.setVisibility(VISIBLE);
         mCurrentView = view;
         mStatus = status;
-
+        if (mIsVisibleToUser) {
+            dispatchShown(view);
+        }
+        releaseStatusView(previousView);
     }
 
     public StatusLayout(@NonNull Context context) {
-        this(context, null);
+        this(context, (AttributeSet) null);
     }
 
     public StatusLayout(@NonNull Context context, @Nullable AttributeSet attrs) {
-        this(context, attrs, 0);
+        this(context, attrs, R.attr.statusLayoutStyle);
     }
 
-    public StatusLayout(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+    public StatusLayout(@NonNull Context context, @Nullable AttributeSet attrs, @AttrRes int defStyleAttr) {
         super(context, attrs, defStyleAttr);
 
-        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.StatusLayout);
+        //没有单独设置属性时直接共享主题配置,不再每次解析TypedArray
+        mConfig = StatusLayoutConfig.resolve(context, attrs, defStyleAttr, isInEditMode());
+        mStatus = StatusLayoutConfig.readStatus(attrs, mConfig.getStatus());
+        mIsAnimable = mConfig.isAnimable();
+    }
 
-        if (isInEditMode()) {
-            mStatus = a.getInt(R.styleable.StatusLayout_status, LayoutStatus.NORMAL);
-        } else {
-            mStatus = a.getInt(R.styleable.StatusLayout_status, LayoutStatus.LOADING);
-        }
+    //代码创建,不解析AttributeSet
+    protected StatusLayout(@NonNull Context context, @NonNull StatusLayoutConfig config) {
+        super(context);
 
-        mShowAnimRes = a.getResourceId(R.styleable.StatusLayout_showAnimRes, -1);
-        mHideAnimRes = a.getResourceId(R.styleable.StatusLayout_hideAnimRes, -1);
+        mConfig = config;
+        mStatus = config.getStatus();
+        mIsAnimable = config.isAnimable();
 
-        mAnimDuration = a.getInt(R.styleable.StatusLayout_animDuration, mAnimDuration);
-        mStatusViewConstructorClassname = a.getString(R.styleable.StatusLayout_statusViewConstructorClassname);
-        mStatusViewConstructorInflaterXml = a.getResourceId(R.styleable.StatusLayout_statusViewConstructorInflaterXml, 0);
+        initStatusView();
+    }
 
-        a.recycle();
+    public static StatusLayout create(@NonNull Context context, @NonNull StatusLayoutConfig config) {
+        return new StatusLayout(context, config);
+    }
 
-        dispatchStatusChanged(mStatus);
+    //不使用StatusLayout包裹target,状态view直接插入target的父布局
+    @NonNull
+    public static StatusAttachment attach(@NonNull View target) {
+        return StatusAttachment.attach(target, null);
+    }
+
+    @NonNull
+    public static StatusAttachment attach(@NonNull View target, @Nullable StatusLayoutConfig config) {
+        return StatusAttachment.attach(target, config);
+    }
+
+    @NonNull
+    public StatusLayoutConfig getConfig() {
+        return mConfig;
     }
 
 
@@ -125,6 +195,72 @@ public class StatusLayout extends FrameLayout {
         }
     }
 
+    //覆盖在可见normal view上的状态view,当前手势的事件只分发给它
+    private View mTouchTarget;
+    private boolean mIsTouchIntercepted = false;
+    private Matrix mTouchMatrix;
+
+    //状态view覆盖在VISIBLE的normal view上时,normal view不接收触摸事件,避免点击穿透到下面的内容;
+    //不修改状态view自身的clickable
+    private boolean isNormalViewCovered() {
+        return mNormalView != null && mCurrentView != null && mCurrentView != mNormalView
+                && mNormalView.getVisibility() == VISIBLE;
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        if (ev.getActionMasked() == MotionEvent.ACTION_DOWN && isNormalViewCovered()) {
+            mIsTouchIntercepted = true;
+            mTouchTarget = mCurrentView;
+            return true;
+        }
+        return super.onInterceptTouchEvent(ev);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!mIsTouchIntercepted) {
+            return super.onTouchEvent(event);
+        }
+
+        final int action = event.getActionMasked();
+        if (mTouchTarget != null) {
+            final View target = mTouchTarget;
+            final float offsetX = getScrollX() - target.getLeft();
+            final float offsetY = getScrollY() - target.getTop();
+            event.offsetLocation(offsetX, offsetY);
+
+            final Matrix matrix = target.getMatrix();
+            final boolean transformed = !matrix.isIdentity();
+            if (transformed) {
+                if (mTouchMatrix == null) {
+                    mTouchMatrix = new Matrix();
+                }
+                matrix.invert(mTouchMatrix);
+                event.transform(mTouchMatrix);
+            }
+
+            //按下的位置不在状态view内时整个手势都不分发
+            if (action == MotionEvent.ACTION_DOWN && (event.getX() < 0 || event.getY() < 0
+                    || event.getX() >= target.getWidth() || event.getY() >= target.getHeight())) {
+                mTouchTarget = null;
+            } else if (target.getVisibility() == VISIBLE) {
+                target.dispatchTouchEvent(event);
+            }
+
+            if (transformed) {
+                event.transform(matrix);
+            }
+            event.offsetLocation(-offsetX, -offsetY);
+        }
+
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            mIsTouchIntercepted = false;
+            mTouchTarget = null;
+        }
+        return true;
+    }
+
     private boolean mAttached = false;
 
     @Override
@@ -132,9 +268,45 @@ public class StatusLayout extends FrameLayout {
         super.onAttachedToWindow();
 
         if (!mAttached) {
-            dispatchStatusChanged(mStatus);
+            //第一次attach时通知初始状态,构造时还没有监听者
+            dispatchStatusCompleted(LayoutStatus.NONE, mStatus);
             mAttached = true;
         }
+
+        mRetryController.onAttached();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        mRetryController.onDetached();
+
+        //detach后直接结束切换动画,不再持有StatusLayout
+        mIsVisibleToUser = false;
+        endStatusAnim();
+
+        //detach后取消加载任务,避免无用的工作和泄漏
+        mLoader.cancel();
+
+        flushStatusText(mErrorView);
+        flushStatusText(mEmptyView);
+        flushStatusText(mLoadingView);
+
+        if (mIsProgressScheduled) {
+            Choreographer.getInstance().removeFrameCallback(mProgressFrameCallback);
+            mIsProgressScheduled = false;
+            applyLoadingProgress();
+        }
+    }
+
+    @Override
+    public void addView(View child, int index, ViewGroup.LayoutParams params) {
+        //normal view总是在最下层,覆盖在上面的状态view的绘制和点击都在它之上(包括xml中声明在normal view之前的状态view)
+        if (params instanceof LayoutParams && ((LayoutParams) params).mStatus == LayoutStatus.NORMAL) {
+            index = 0;
+        }
+        super.addView(child, index, params);
     }
 
     @CallSuper
@@ -151,6 +323,7 @@ public class StatusLayout extends FrameLayout {
 
     private void removeChild(View view) {
         LayoutParams params = (LayoutParams) view.getLayoutParams();
+        dispatchRecycled(view);
         switch (params.mStatus) {
             case LayoutStatus.NORMAL:
                 mNormalView = null;
@@ -184,7 +357,7 @@ public class StatusLayout extends FrameLayout {
                     throw new RuntimeException("already exists empty`View!");
                 }
                 mEmptyView = view;
-                setOnRetryClickListenerInternal(mEmptyView, mOnEmptyRetryClickListener);
+                RetryController.setRetryListener(mEmptyView, mOnEmptyRetryClickListener);
                 adjustStatus(view, LayoutStatus.EMPTY);
                 break;
             case LayoutStatus.ERROR:
@@ -192,7 +365,7 @@ public class StatusLayout extends FrameLayout {
                     throw new RuntimeException("already exists errorView!");
                 }
                 mErrorView = view;
-                setOnRetryClickListenerInternal(mErrorView, mOnErrorRetryClickListener);
+                RetryController.setRetryListener(mErrorView, mOnErrorRetryClickListener);
                 adjustStatus(view, LayoutStatus.ERROR);
                 break;
             case LayoutStatus.LOADING:
@@ -209,41 +382,62 @@ public class StatusLayout extends FrameLayout {
 
     private void adjustStatus(View view, @LayoutStatus int status) {
         if (status == mStatus) {
+            dispatchBeforeShow(view);
             view.setVisibility(VISIBLE);
             mCurrentView = view;
+            if (mNormalView != null && view != mNormalView) {
+                mNormalView.setVisibility(getNormalVisibility(status));
+            }
+            if (mIsVisibleToUser) {
+                dispatchShown(view);
+            }
+        } else if (view == mNormalView) {
+            view.setVisibility(getNormalVisibility(mStatus));
         } else {
             view.setVisibility(GONE);
         }
     }
 
-    private Animator obtainShowAnim() {
-        if (mShowAnimRes == -1) {
-            ObjectAnimator animator = new ObjectAnimator();
-            animator.setDuration(mAnimDuration);
-            animator.setProperty(View.ALPHA);
-            animator.setFloatValues(0f, 1f);
+    private int getNormalVisibility(@LayoutStatus int status) {
+        return mConfig.getNormalVisibility(status);
+    }
 
-            return animator;
+    //切换到status时隐藏之前的view
+    private void hideStatusView(View view, @LayoutStatus int status) {
+        if (view == mNormalView) {
+            view.setVisibility(getNormalVisibility(status));
         } else {
-            return AnimatorInflater.loadAnimator(getContext(), mShowAnimRes);
+            view.setVisibility(GONE);
+            if (mNormalView != null && status != LayoutStatus.NORMAL) {
+                mNormalView.setVisibility(getNormalVisibility(status));
+            }
         }
     }
 
+    //从normal切换到覆盖状态时不需要隐藏normal view
+    private boolean isOverlayTransition(@LayoutStatus int status) {
+        return mCurrentView == mNormalView && getNormalVisibility(status) != GONE;
+    }
 
-    private Animator obtainHideAnim() {
-        if (mHideAnimRes == -1) {
-            ObjectAnimator animator = new ObjectAnimator();
-            animator.setDuration(mAnimDuration);
-            animator.setProperty(View.ALPHA);
-            animator.setFloatValues(1f, 0f);
+    //切换动画复用,避免每次切换都创建或解析Animator
+    private Animator obtainShowAnim() {
+        if (mShowAnimator == null) {
+            mShowAnimator = mConfig.newShowAnim(getContext());
+            mShowAnimator.addListener(mShowAnimListener);
+        }
+        return mShowAnimator;
+    }
 
-            return animator;
-        } else {
-            return AnimatorInflater.loadAnimator(getContext(), mHideAnimRes);
+    private Animator obtainHideAnim() {
+        if (mHideAnimator == null) {
+            mHideAnimator = mConfig.newHideAnim(getContext());
+            mHideAnimator.addListener(mHideAnimListener);
         }
+        return mHideAnimator;
     }
 
 
+    @Override
     public @LayoutStatus
     int getStatus() {
         return mStatus;
@@ -260,37 +454,30 @@ public class StatusLayout extends FrameLayout {
         return status;
     }
 
+    @Override
     public void error(Object obj) {
-        if (obj instanceof Integer) {
-            error(getContext().getString((Integer) obj));
-        } else if (obj instanceof CharSequence) {
-            error((CharSequence) obj);
-        } else {
-            error();
-        }
+        ensureErrorView();
+
+        errorPayload(toPayload(obj, mErrorView));
     }
 
 
+    @Override
     public void error() {
-        error(null);
+        errorPayload(StatusPayload.DEFAULT);
     }
 
-    private void error(CharSequence errorText) {
+    @Override
+    public void errorPayload(@Nullable StatusPayload payload) {
+        if (payload == null) {
+            payload = StatusPayload.DEFAULT;
+        }
+
         ensureErrorView();
 
         changeStatus(LayoutStatus.ERROR);
 
-        setStatusText(mErrorView, errorText, new IText() {
-            @Override
-            public void setText(CharSequence text) {
-                mErrorText = text;
-            }
-
-            @Override
-            public CharSequence getText() {
-                return mErrorText;
-            }
-        });
+        applyPayload(mErrorView, payload);
     }
 
     private void ensureErrorView() {
@@ -298,41 +485,34 @@ public class StatusLayout extends FrameLayout {
             //添加默认errorView
             IStatusChildView errorView = getStatusViewConstructor().newErrorView(getContext());
             View view = errorView.getView();
-            setViewStatus(view, LayoutStatus.ERROR);
+            setViewStatus(view, LayoutStatus.ERROR, errorView);
             addView(view);
         }
     }
 
+    @Override
     public void empty(Object obj) {
-        if (obj instanceof Integer) {
-            empty(getContext().getString((Integer) obj));
-        } else if (obj instanceof CharSequence) {
-            empty((CharSequence) obj);
-        } else {
-            empty();
-        }
+        ensureEmptyView();
+
+        emptyPayload(toPayload(obj, mEmptyView));
     }
 
+    @Override
     public void empty() {
-        empty(null);
+        emptyPayload(StatusPayload.DEFAULT);
     }
 
-    private void empty(CharSequence emptyText) {
+    @Override
+    public void emptyPayload(@Nullable StatusPayload payload) {
+        if (payload == null) {
+            payload = StatusPayload.DEFAULT;
+        }
+
         ensureEmptyView();
 
         changeStatus(LayoutStatus.EMPTY);
 
-        setStatusText(mEmptyView, emptyText, new IText() {
-            @Override
-            public void setText(CharSequence text) {
-                mEmptyText = text;
-            }
-
-            @Override
-            public CharSequence getText() {
-                return mEmptyText;
-            }
-        });
+        applyPayload(mEmptyView, payload);
     }
 
     private void ensureEmptyView() {
@@ -340,57 +520,95 @@ public class StatusLayout extends FrameLayout {
             //添加默认emptyView
             IStatusChildView emptyView = getStatusViewConstructor().newEmptyView(getContext());
             View view = emptyView.getView();
-            setViewStatus(view, LayoutStatus.EMPTY);
+            setViewStatus(view, LayoutStatus.EMPTY, emptyView);
             addView(view);
         }
     }
 
-    private void setStatusText(View view, CharSequence text, IText currentText) {
-        if (view instanceof IText) {
-            if (currentText.getText() == null) {
-                currentText.setText(((IText) view).getText());
-            }
+    @Override
+    public void loading(Object obj) {
+        ensureLoadingView();
 
-            if (text == null) {
-                text = currentText.getText();
-            }
+        loadingPayload(toPayload(obj, mLoadingView));
+    }
 
-            if (text != null) {
-                ((IText) view).setText(text);
-            }
+    public void loading(CharSequence loadingText) {
+        loading((Object) loadingText);
+    }
+
+    @Override
+    public void loading() {
+        loadingPayload(StatusPayload.DEFAULT);
+    }
+
+    @Override
+    public void loadingPayload(@Nullable StatusPayload payload) {
+        if (payload == null) {
+            payload = StatusPayload.DEFAULT;
         }
+
+        ensureLoadingView();
+
+        changeStatus(LayoutStatus.LOADING);
+
+        applyPayload(mLoadingView, payload);
     }
 
-    public void loading(Object obj) {
-        if (obj instanceof Integer) {
-            empty(getContext().getString((Integer) obj));
-        } else if (obj instanceof CharSequence) {
-            empty((CharSequence) obj);
-        } else {
-            empty();
+    private StatusPayload toPayload(Object obj, View view) {
+        return StatusPayloadState.toPayload(getContext(), obj, ((LayoutParams) view.getLayoutParams()).mPayloadState);
+    }
+
+    private void applyPayload(View view, StatusPayload payload) {
+        final LayoutParams params = (LayoutParams) view.getLayoutParams();
+        if (params.mPayloadState == null) {
+            params.mPayloadState = new StatusPayloadState();
         }
+
+        params.mPayloadState.apply(view, params.mStatusChildView, payload);
     }
 
-    public void loading(CharSequence loadingText) {
+    //立即同步设置状态view等待中的文字
+    private static void flushStatusText(View view) {
+        if (view != null) {
+            final StatusPayloadState state = ((LayoutParams) view.getLayoutParams()).mPayloadState;
+            if (state != null) {
+                state.flushText();
+            }
+        }
+    }
+
+    //高频的进度更新合并到每帧最多一次
+    public void loadingProgress(@FloatRange(from = 0, to = 1) float progress) {
         ensureLoadingView();
 
         changeStatus(LayoutStatus.LOADING);
 
-        setStatusText(mEmptyView, loadingText, new IText() {
-            @Override
-            public void setText(CharSequence text) {
-                mLoadingText = text;
-            }
+        mPendingProgress = progress;
+        if (!mIsProgressScheduled) {
+            mIsProgressScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mProgressFrameCallback);
+        }
+    }
 
-            @Override
-            public CharSequence getText() {
-                return mLoadingText;
-            }
-        });
+    private void cancelLoadingProgress() {
+        mPendingProgress = -1;
+        if (mIsProgressScheduled) {
+            mIsProgressScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(mProgressFrameCallback);
+        }
     }
 
-    public void loading() {
-        loading(null);
+    private void applyLoadingProgress() {
+        if (mPendingProgress < 0) {
+            return;
+        }
+
+        final float progress = mPendingProgress;
+        mPendingProgress = -1;
+
+        if (getWhenStatus() == LayoutStatus.LOADING && mLoadingView instanceof IProgress) {
+            ((IProgress) mLoadingView).setProgress(progress);
+        }
     }
 
     private void ensureLoadingView() {
@@ -398,15 +616,50 @@ public class StatusLayout extends FrameLayout {
             //添加默认errorView
             IStatusChildView loadingView = getStatusViewConstructor().newLoadingView(getContext());
             View view = loadingView.getView();
-            setViewStatus(view, LayoutStatus.LOADING);
+            setViewStatus(view, LayoutStatus.LOADING, loadingView);
             addView(view);
         }
     }
 
+    @Override
     public void normal() {
         changeStatus(LayoutStatus.NORMAL);
     }
 
+    public <T> void load(@NonNull Callable<T> task, @Nullable EmptyPredicate<T> emptyPredicate) {
+        load(task, emptyPredicate, null, 0);
+    }
+
+    public <T> void load(@NonNull Callable<T> task, @Nullable EmptyPredicate<T> emptyPredicate,
+                         @Nullable OnLoadedListener<T> listener) {
+        load(task, emptyPredicate, listener, 0);
+    }
+
+    //在共享线程池中执行task:异常或超时->error,null或emptyPredicate成立->empty,否则->normal
+    //新的load会取消上一次未完成的load,detach时也会取消
+    public <T> void load(@NonNull Callable<T> task, @Nullable EmptyPredicate<T> emptyPredicate,
+                         @Nullable OnLoadedListener<T> listener, long timeoutMillis) {
+        loading();
+        mLoader.load(task, emptyPredicate, listener, timeoutMillis);
+    }
+
+    public void cancelLoad() {
+        mLoader.cancel();
+    }
+
+    public boolean isLoadRunning() {
+        return mLoader.isLoading();
+    }
+
+    public interface EmptyPredicate<T> {
+        boolean isEmpty(T result);
+    }
+
+    //在主线程回调,之后切换到normal
+    public interface OnLoadedListener<T> {
+        void onLoaded(T result);
+    }
+
 
     //是否可以执行状态切换动画
     public void setAnimable(boolean animable) {
@@ -414,15 +667,108 @@ public class StatusLayout extends FrameLayout {
     }
 
 
+    //正在执行的动画
     private Animator mShowAnim;
     private Animator mHideAnim;
 
+    private Animator mShowAnimator;
+    private Animator mHideAnimator;
+
+    private final Animator.AnimatorListener mHideAnimListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            onHideAnimEnd();
+        }
+    };
+
+    private void onHideAnimEnd() {
+        final @LayoutStatus int status = mStartingAnimStatus;
+        final View view = getViewByStatus(status);
+        final View previousView = mCurrentView;
+        //覆盖在normal view上的状态切换回normal时,normal view可能一直是VISIBLE的
+        final boolean wasVisible = view.getVisibility() == VISIBLE;
+
+        hideStatusView(previousView, status);
+        dispatchHidden(previousView);
+        if (mConfig.getHideAnimRes() == -1) {
+            //恢复默认隐藏动画修改的alpha,避免下次直接显示时是透明的
+            previousView.setAlpha(1f);
+        }
+
+        view.setEnabled(true);
+        dispatchBeforeShow(view);
+        view.setVisibility(VISIBLE);
+
+        mStatus = status;
+        mCurrentView = view;
+
+        mHideAnim = null;
+
+        releaseStatusView(previousView);
+
+        if (wasVisible) {
+            onShowAnimEnd();
+            return;
+        }
+
+        mShowAnim = obtainShowAnim();
+        mShowAnim.setTarget(view);
+        mShowAnim.start();
+    }
+
+    private final Animator.AnimatorListener mShowAnimListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            onShowAnimEnd();
+        }
+    };
+
+    private void onShowAnimEnd() {
+        mIsStartingAnim = false;
+        mShowAnim = null;
+
+        if (mIsVisibleToUser) {
+            dispatchShown(mCurrentView);
+        }
+
+        if (mIsCancellingStatusAnim) {
+            dispatchStatusEvent(mTransitionFromStatus, mStatus, StatusEvent.PHASE_CANCELLED);
+        } else {
+            dispatchStatusCompleted(mTransitionFromStatus, mStatus);
+        }
+    }
+
     private boolean mIsStartingAnim = false;
     private int mStartingAnimStatus = LayoutStatus.NONE;
+    private int mTransitionFromStatus = LayoutStatus.NONE;
+    private boolean mIsCancellingStatusAnim = false;
 
 
     private OnStatusChangedListener mOnStatusChangedListener;
 
+    private final StatusEventDispatcher mStatusEventDispatcher = new StatusEventDispatcher(this);
+
+    @Override
+    public void addOnStatusEventListener(@NonNull OnStatusEventListener listener) {
+        mStatusEventDispatcher.add(listener);
+    }
+
+    @Override
+    public void removeOnStatusEventListener(@NonNull OnStatusEventListener listener) {
+        mStatusEventDispatcher.remove(listener);
+    }
+
+    private void dispatchStatusEvent(@LayoutStatus int oldStatus, @LayoutStatus int newStatus,
+                                     @StatusEvent.Phase int phase) {
+        mStatusEventDispatcher.dispatch(oldStatus, newStatus, phase);
+    }
+
+    private void dispatchStatusCompleted(@LayoutStatus int oldStatus, @LayoutStatus int newStatus) {
+        dispatchStatusEvent(oldStatus, newStatus, StatusEvent.PHASE_COMPLETED);
+        dispatchStatusChanged(newStatus);
+    }
+
+    @Override
     public void setOnStatusChangedListener(OnStatusChangedListener mOnStatusChangedListener) {
         this.mOnStatusChangedListener = mOnStatusChangedListener;
     }
@@ -438,102 +784,310 @@ public class StatusLayout extends FrameLayout {
         void onStatusChanged(int status);
     }
 
-    private void changeStatus(@LayoutStatus final int status) {
-        Log.e(TAG, "mStartingAnimStatus:" + mStartingAnimStatus
-                + ",mIsStartingAnim:" + mIsStartingAnim + ",mStatus:" + mStatus + ",status:" + status);
+    //event会被复用,不要在回调之外持有
+    public interface OnStatusEventListener {
+        void onStatusEvent(@NonNull StatusEvent event);
+    }
 
-        if (((mStartingAnimStatus == status && mIsStartingAnim) || (!mIsStartingAnim && mStatus == status))) {
-            return;
+    public static final class StatusEvent {
+        //请求切换状态
+        public static final int PHASE_REQUESTED = 0;
+        //开始切换(动画开始)
+        public static final int PHASE_STARTED = 1;
+        //切换完成
+        public static final int PHASE_COMPLETED = 2;
+        //切换被新的状态请求打断
+        public static final int PHASE_CANCELLED = 3;
+
+        @IntDef({PHASE_REQUESTED, PHASE_STARTED, PHASE_COMPLETED, PHASE_CANCELLED})
+        public @interface Phase {
         }
 
-        final View view = getViewByStatus(status);
+        private final IStatusLayout mSource;
+        private @LayoutStatus
+        int mOldStatus;
+        private @LayoutStatus
+        int mNewStatus;
+        private @Phase
+        int mPhase;
 
-        if (!mIsAnimable) {
-            setStatus(status);
-            dispatchStatusChanged(status);
+        StatusEvent(IStatusLayout source) {
+            mSource = source;
+        }
+
+        void set(int oldStatus, int newStatus, int phase) {
+            mOldStatus = oldStatus;
+            mNewStatus = newStatus;
+            mPhase = phase;
+        }
+
+        //StatusLayout或StatusAttachment
+        @NonNull
+        public IStatusLayout getSource() {
+            return mSource;
+        }
+
+        //事件来自StatusAttachment时为null
+        @Nullable
+        public StatusLayout getLayout() {
+            return mSource instanceof StatusLayout ? (StatusLayout) mSource : null;
+        }
+
+        public @LayoutStatus
+        int getOldStatus() {
+            return mOldStatus;
+        }
+
+        public @LayoutStatus
+        int getNewStatus() {
+            return mNewStatus;
+        }
+
+        public @Phase
+        int getPhase() {
+            return mPhase;
+        }
+    }
+
+    private void changeStatus(@LayoutStatus int status) {
+        if (DEBUG) {
+            Log.d(TAG, "mStartingAnimStatus:" + mStartingAnimStatus
+                    + ",mIsStartingAnim:" + mIsStartingAnim + ",mStatus:" + mStatus + ",status:" + status);
+        }
+
+        mRetryController.onStatusRequested(status);
+
+        if (((mStartingAnimStatus == status && mIsStartingAnim) || (!mIsStartingAnim && mStatus == status))) {
             return;
         }
 
-        if (mHideAnim != null) {
-            mHideAnim.cancel();
-            mIsStartingAnim = false;
-            mHideAnim = null;
+        //状态view不存在时直接抛出异常,而不是在动画回调中
+        getViewByStatus(status);
+
+        //离开loading时丢弃等待中的进度,新的loading从0开始,不显示上一次加载的进度
+        cancelLoadingProgress();
+        if (status == LayoutStatus.LOADING && mLoadingView instanceof IProgress) {
+            ((IProgress) mLoadingView).setProgress(0);
         }
 
-        if (mShowAnim != null) {
-            mShowAnim.cancel();
-            mShowAnim = null;
+        dispatchStatusEvent(getWhenStatus(), status, StatusEvent.PHASE_REQUESTED);
+
+        //正在执行的切换被打断
+        endStatusAnim(true);
+
+        final int fromStatus = mStatus;
+
+        //用户不可见时不执行动画
+        if (!mIsAnimable || !mIsVisibleToUser) {
+            dispatchStatusEvent(fromStatus, status, StatusEvent.PHASE_STARTED);
+            setStatus(status);
+            dispatchStatusCompleted(fromStatus, status);
+            return;
         }
 
         mIsStartingAnim = true;
         mStartingAnimStatus = status;
+        mTransitionFromStatus = fromStatus;
+
+        dispatchStatusEvent(fromStatus, status, StatusEvent.PHASE_STARTED);
+
+        if (isOverlayTransition(status)) {
+            //直接在normal view上显示状态view
+            onHideAnimEnd();
+            return;
+        }
 
         mHideAnim = obtainHideAnim();
-        mHideAnim.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                mCurrentView.setVisibility(GONE);
-                mShowAnim = obtainShowAnim();
-                mShowAnim.addListener(new AnimatorListenerAdapter() {
-                    @Override
-                    public void onAnimationEnd(Animator animation) {
-                        mIsStartingAnim = false;
-                        mShowAnim = null;
-
-                        dispatchStatusChanged(status);
-                    }
-                });
-
-                view.setEnabled(true);
-                view.setVisibility(VISIBLE);
-                mShowAnim.setTarget(view);
-                mShowAnim.start();
-
-                mStatus = status;
-                mCurrentView = view;
-
-                mHideAnim = null;
-            }
-        });
 
         mCurrentView.setEnabled(false);
         mHideAnim.setTarget(mCurrentView);
         mHideAnim.start();
     }
 
-    public void setOnErrorRetryClickListener(final OnClickListener l) {
-        mOnErrorRetryClickListener = view -> {
-            if (mLoadingView != null) {
-                loading();
+    private void endStatusAnim() {
+        endStatusAnim(false);
+    }
+
+    //结束正在执行的切换动画,直接跳到结束状态;cancelled为true时通知PHASE_CANCELLED
+    private void endStatusAnim(boolean cancelled) {
+        mIsCancellingStatusAnim = cancelled;
+
+        if (mHideAnim != null) {
+            //会在onAnimationEnd中开始显示动画
+            mHideAnim.end();
+        }
+
+        if (mShowAnim != null) {
+            mShowAnim.end();
+        }
+
+        mIsCancellingStatusAnim = false;
+        mIsStatusAnimPaused = false;
+    }
+
+    private boolean mIsVisibleToUser = false;
+    private boolean mIsStatusAnimPaused = false;
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        setVisibleToUser(isVisible);
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            setVisibleToUser(visibility == VISIBLE && isShown());
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            setVisibleToUser(getWindowVisibility() == VISIBLE && isShown());
+        }
+    }
+
+    private void setVisibleToUser(boolean visible) {
+        if (mIsVisibleToUser == visible) {
+            return;
+        }
+
+        mIsVisibleToUser = visible;
+
+        if (visible) {
+            resumeStatusAnim();
+            //切换动画中时由动画结束时回调
+            if (mCurrentView != null && mHideAnim == null && mShowAnim == null) {
+                dispatchShown(mCurrentView);
             }
-            l.onClick(view);
-        };
+        } else {
+            pauseStatusAnim();
+            if (mCurrentView != null) {
+                dispatchHidden(mCurrentView);
+            }
+        }
+    }
 
-        setOnRetryClickListenerInternal(mErrorView, mOnErrorRetryClickListener);
+    @Nullable
+    private static IStatusChildViewLifecycle getLifecycle(View view) {
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        return StatusPayloadState.getLifecycle(view,
+                params instanceof LayoutParams ? ((LayoutParams) params).mStatusChildView : null);
     }
 
-    public void setOnEmptyRetryClickListener(final OnClickListener l) {
-        mOnEmptyRetryClickListener = view -> {
-            if (mLoadingView != null) {
-                loading();
+    private static void dispatchBeforeShow(View view) {
+        IStatusChildViewLifecycle lifecycle = getLifecycle(view);
+        if (lifecycle != null) {
+            lifecycle.onBeforeShow();
+        }
+    }
+
+    //onShown和onHidden成对回调
+    private static void dispatchShown(View view) {
+        IStatusChildViewLifecycle lifecycle = getLifecycle(view);
+        if (lifecycle != null) {
+            LayoutParams params = (LayoutParams) view.getLayoutParams();
+            if (!params.mShown) {
+                params.mShown = true;
+                lifecycle.onShown();
+            }
+        }
+    }
+
+    private static void dispatchHidden(View view) {
+        IStatusChildViewLifecycle lifecycle = getLifecycle(view);
+        if (lifecycle != null) {
+            LayoutParams params = (LayoutParams) view.getLayoutParams();
+            if (params.mShown) {
+                params.mShown = false;
+                lifecycle.onHidden();
             }
-            l.onClick(view);
-        };
+        }
+    }
 
-        setOnRetryClickListenerInternal(mEmptyView, mOnEmptyRetryClickListener);
+    private static void dispatchRecycled(View view) {
+        IStatusChildViewLifecycle lifecycle = getLifecycle(view);
+        if (lifecycle != null) {
+            dispatchHidden(view);
+            lifecycle.onRecycled();
+        }
     }
 
+    private void pauseStatusAnim() {
+        if (mHideAnim == null && mShowAnim == null) {
+            return;
+        }
+
+        //Animator.pause需要api19,低版本直接结束
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            endStatusAnim();
+            return;
+        }
 
-    private void setOnRetryClickListenerInternal(View view, OnClickListener clickListener) {
-        if (clickListener != null) {
-            if (view instanceof IRetryChildView) {
-                ((IRetryChildView) view).setOnRetryClickListener(clickListener);
-            } else if (view != null) {
-                view.setOnClickListener(clickListener);
+        if (mHideAnim != null) {
+            mHideAnim.pause();
+        }
+        if (mShowAnim != null) {
+            mShowAnim.pause();
+        }
+        mIsStatusAnimPaused = true;
+    }
+
+    private void resumeStatusAnim() {
+        if (!mIsStatusAnimPaused) {
+            return;
+        }
+
+        mIsStatusAnimPaused = false;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            if (mHideAnim != null) {
+                mHideAnim.resume();
+            }
+            if (mShowAnim != null) {
+                mShowAnim.resume();
             }
         }
     }
 
+    @Override
+    public void setOnErrorRetryClickListener(final OnClickListener l) {
+        mOnErrorRetryClickListener = mRetryController.wrapRetryListener(l);
+
+        RetryController.setRetryListener(mErrorView, mOnErrorRetryClickListener);
+    }
+
+    @Override
+    public void setOnEmptyRetryClickListener(final OnClickListener l) {
+        mOnEmptyRetryClickListener = mRetryController.wrapRetryListener(l);
+
+        RetryController.setRetryListener(mEmptyView, mOnEmptyRetryClickListener);
+    }
+
+    @Override
+    public void setRetryBackoff(long initialMillis, float multiplier, long maxMillis) {
+        mRetryController.setBackoff(initialMillis, multiplier, maxMillis);
+    }
+
+    @Override
+    public void setAutoRetryOnReconnect(boolean autoRetry) {
+        mRetryController.setAutoRetryOnReconnect(autoRetry);
+    }
+
+    @Override
+    public boolean isRetrying() {
+        return mRetryController.isInFlight();
+    }
+
+    @Override
+    public long getRetryBackoffRemaining() {
+        return mRetryController.getRemainingBackoff();
+    }
+
+
     public View getViewByStatus(@LayoutStatus int status) {
         switch (status) {
             case LayoutStatus.NORMAL:
@@ -565,29 +1119,25 @@ public class StatusLayout extends FrameLayout {
     }
 
     private StatusChildViewConstructor getStatusViewConstructor() {
-        if (mConstructor != null) return mConstructor;
-
-        if (mStatusViewConstructorClassname != null) {
-            try {
-                mConstructor = (StatusChildViewConstructor) Class.forName(mStatusViewConstructorClassname).newInstance();
-                int xml = mStatusViewConstructorInflaterXml;
-                if (xml != 0) {
-                    try (XmlResourceParser parser = getResources().getXml(xml)) {
-                        mConstructor.inflate(getContext(), parser);
-                    }
-                }
-            } catch (Throwable e) {
-                mConstructor = HOLDER;
-            }
+        if (mConstructor == null) {
+            mConstructor = mConfig.newStatusViewConstructor(getContext());
+        }
+        return mConstructor;
+    }
 
-            return mConstructor;
+    //RETENTION_RELEASE时移除隐藏的、由constructor创建的状态view,下次使用时重新创建
+    private void releaseStatusView(View view) {
+        if (mConfig.getRetention() != StatusLayoutConfig.RETENTION_RELEASE || view == mCurrentView) {
+            return;
         }
 
-        throw new RuntimeException("please set attr statusViewConstructorClassname");
+        LayoutParams params = (LayoutParams) view.getLayoutParams();
+        if (params.mGenerated && params.mStatus != LayoutStatus.NORMAL) {
+            removeView(view);
+        }
     }
 
-
-    private void setViewStatus(View view, int status) {
+    private void setViewStatus(View view, int status, IStatusChildView statusChildView) {
         ViewGroup.LayoutParams params = view.getLayoutParams();
         if (params != null) {
             params = generateLayoutParams(params);
@@ -596,6 +1146,8 @@ public class StatusLayout extends FrameLayout {
         }
 
         ((LayoutParams) params).mStatus = status;
+        ((LayoutParams) params).mGenerated = true;
+        ((LayoutParams) params).mStatusChildView = statusChildView;
 
         view.setLayoutParams(params);
 
@@ -615,6 +1167,16 @@ public class StatusLayout extends FrameLayout {
         private @LayoutStatus
         int mStatus = LayoutStatus.NONE;
 
+        //是否由StatusChildViewConstructor创建
+        boolean mGenerated = false;
+
+        IStatusChildView mStatusChildView;
+
+        //是否已经回调onShown
+        boolean mShown = false;
+
+        StatusPayloadState mPayloadState;
+
         public LayoutParams(@NonNull Context c, @Nullable AttributeSet attrs) {
             super(c, attrs);
 
@@ -646,26 +1208,4 @@ public class StatusLayout extends FrameLayout {
             mStatus = status;
         }
     }
-
-    private static final StatusChildViewConstructor HOLDER = new StatusChildViewConstructor() {
-        @Override
-        public void inflate(Context context, XmlResourceParser parser) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public IStatusChildView newErrorView(Context context) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public IStatusChildView newEmptyView(Context context) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public IStatusChildView newLoadingView(Context context) {
-            throw new UnsupportedOperationException();
-        }
-    };
 }
@@ -0,0 +1,467 @@
+package cn.fxlcy.widget.statuslayout;
+
+import android.animation.Animator;
+import android.animation.AnimatorInflater;
+import android.animation.ObjectAnimator;
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.content.res.XmlResourceParser;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.util.SparseArray;
+import android.view.View;
+
+import androidx.annotation.AnimatorRes;
+import androidx.annotation.AttrRes;
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.XmlRes;
+
+import java.util.WeakHashMap;
+
+//不可变的StatusLayout配置,同一个主题下的StatusLayout共享同一个实例
+public final class StatusLayoutConfig {
+
+    public final static int RETENTION_KEEP = 0;
+    public final static int RETENTION_RELEASE = 1;
+
+    @IntDef({RETENTION_KEEP, RETENTION_RELEASE})
+    public @interface Retention {
+    }
+
+    //状态view替换normal view(normal view为GONE)
+    public final static int OVERLAY_NONE = 0;
+    //状态view覆盖在normal view上,normal view为INVISIBLE,仍然保持测量和布局
+    public final static int OVERLAY_INVISIBLE = 1;
+    //状态view覆盖在normal view上,normal view保持VISIBLE,可以用半透明的状态view背景实现变暗效果
+    public final static int OVERLAY_VISIBLE = 2;
+
+    @IntDef({OVERLAY_NONE, OVERLAY_INVISIBLE, OVERLAY_VISIBLE})
+    public @interface Overlay {
+    }
+
+    private final static String TAG = "StatusLayoutConfig";
+
+    private final static int DEFAULT_ANIM_DURATION = 300;
+
+    //theme -> (defStyleAttr -> config)
+    private final static WeakHashMap<Resources.Theme, SparseArray<StatusLayoutConfig>> sThemeConfigs = new WeakHashMap<>();
+
+    private final @StatusLayout.LayoutStatus
+    int mStatus;
+    private final @AnimatorRes
+    int mShowAnimRes;
+    private final @AnimatorRes
+    int mHideAnimRes;
+    private final int mAnimDuration;
+    private final boolean mAnimable;
+    private final @Retention
+    int mRetention;
+    private final String mStatusViewConstructorClassname;
+    private final @XmlRes
+    int mStatusViewConstructorInflaterXml;
+    private final @Overlay
+    int mErrorOverlay;
+    private final @Overlay
+    int mEmptyOverlay;
+    private final @Overlay
+    int mLoadingOverlay;
+
+    //Builder设置的constructor实例,由使用这个配置的所有布局共享
+    private final StatusChildViewConstructor mConstructor;
+
+    //实现了ISharedStatusChildViewConstructor的constructor在这个配置下只创建一次
+    private StatusChildViewConstructor mSharedConstructor;
+    private Class<?> mConstructorClass;
+    //类查找失败不会在之后成功,只缓存这一种失败
+    private boolean mConstructorClassNotFound;
+
+    private StatusLayoutConfig(Builder builder) {
+        mStatus = builder.mStatus;
+        mShowAnimRes = builder.mShowAnimRes;
+        mHideAnimRes = builder.mHideAnimRes;
+        mAnimDuration = builder.mAnimDuration;
+        mAnimable = builder.mAnimable;
+        mRetention = builder.mRetention;
+        mStatusViewConstructorClassname = builder.mStatusViewConstructorClassname;
+        mStatusViewConstructorInflaterXml = builder.mStatusViewConstructorInflaterXml;
+        mErrorOverlay = builder.mErrorOverlay;
+        mEmptyOverlay = builder.mEmptyOverlay;
+        mLoadingOverlay = builder.mLoadingOverlay;
+        mConstructor = builder.mConstructor;
+    }
+
+    private StatusLayoutConfig(TypedArray a, @StatusLayout.LayoutStatus int defStatus) {
+        mStatus = a.getInt(R.styleable.StatusLayout_status, defStatus);
+        mShowAnimRes = a.getResourceId(R.styleable.StatusLayout_showAnimRes, -1);
+        mHideAnimRes = a.getResourceId(R.styleable.StatusLayout_hideAnimRes, -1);
+        mAnimDuration = a.getInt(R.styleable.StatusLayout_animDuration, DEFAULT_ANIM_DURATION);
+        mAnimable = a.getBoolean(R.styleable.StatusLayout_animable, true);
+        mRetention = a.getInt(R.styleable.StatusLayout_statusViewRetention, RETENTION_KEEP);
+        mStatusViewConstructorClassname = a.getString(R.styleable.StatusLayout_statusViewConstructorClassname);
+        mStatusViewConstructorInflaterXml = a.getResourceId(R.styleable.StatusLayout_statusViewConstructorInflaterXml, 0);
+        mErrorOverlay = a.getInt(R.styleable.StatusLayout_errorOverlay, OVERLAY_NONE);
+        mEmptyOverlay = a.getInt(R.styleable.StatusLayout_emptyOverlay, OVERLAY_NONE);
+        mLoadingOverlay = a.getInt(R.styleable.StatusLayout_loadingOverlay, OVERLAY_NONE);
+        mConstructor = null;
+    }
+
+    //主题中statusLayoutStyle和StatusLayout属性对应的配置,每个主题只解析一次
+    @NonNull
+    public static StatusLayoutConfig obtain(@NonNull Context context) {
+        return obtain(context, R.attr.statusLayoutStyle);
+    }
+
+    @NonNull
+    static StatusLayoutConfig obtain(@NonNull Context context, @AttrRes int defStyleAttr) {
+        Resources.Theme theme = context.getTheme();
+
+        synchronized (sThemeConfigs) {
+            SparseArray<StatusLayoutConfig> configs = sThemeConfigs.get(theme);
+            if (configs == null) {
+                configs = new SparseArray<>(1);
+                sThemeConfigs.put(theme, configs);
+            }
+
+            StatusLayoutConfig config = configs.get(defStyleAttr);
+            if (config == null) {
+                TypedArray a = context.obtainStyledAttributes(null, R.styleable.StatusLayout, defStyleAttr, 0);
+                config = new StatusLayoutConfig(a, StatusLayout.LayoutStatus.LOADING);
+                a.recycle();
+                configs.put(defStyleAttr, config);
+            }
+            return config;
+        }
+    }
+
+    //xml中设置了StatusLayout属性(status除外)或style时单独解析,否则共享主题配置
+    @NonNull
+    static StatusLayoutConfig resolve(@NonNull Context context, @Nullable AttributeSet attrs,
+                                      @AttrRes int defStyleAttr, boolean editMode) {
+        if (!editMode && !hasConfigAttributes(attrs)) {
+            return obtain(context, defStyleAttr);
+        }
+
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.StatusLayout, defStyleAttr, 0);
+        StatusLayoutConfig config = new StatusLayoutConfig(a,
+                editMode ? StatusLayout.LayoutStatus.NORMAL : StatusLayout.LayoutStatus.LOADING);
+        a.recycle();
+        return config;
+    }
+
+    private static boolean hasConfigAttributes(@Nullable AttributeSet attrs) {
+        if (attrs == null) {
+            return false;
+        }
+
+        if (attrs.getStyleAttribute() != 0) {
+            return true;
+        }
+
+        final int[] styleable = R.styleable.StatusLayout;
+        final int statusAttr = styleable[R.styleable.StatusLayout_status];
+
+        for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+            int nameRes = attrs.getAttributeNameResource(i);
+            if (nameRes == 0 || nameRes == statusAttr) {
+                continue;
+            }
+
+            for (int attr : styleable) {
+                if (attr == nameRes) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    //xml中的status属性,不存在时返回defStatus
+    static @StatusLayout.LayoutStatus
+    int readStatus(@Nullable AttributeSet attrs, @StatusLayout.LayoutStatus int defStatus) {
+        if (attrs == null) {
+            return defStatus;
+        }
+
+        final int statusAttr = R.styleable.StatusLayout[R.styleable.StatusLayout_status];
+
+        for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+            if (attrs.getAttributeNameResource(i) == statusAttr) {
+                return attrs.getAttributeIntValue(i, defStatus);
+            }
+        }
+
+        return defStatus;
+    }
+
+    public @StatusLayout.LayoutStatus
+    int getStatus() {
+        return mStatus;
+    }
+
+    public @AnimatorRes
+    int getShowAnimRes() {
+        return mShowAnimRes;
+    }
+
+    public @AnimatorRes
+    int getHideAnimRes() {
+        return mHideAnimRes;
+    }
+
+    public int getAnimDuration() {
+        return mAnimDuration;
+    }
+
+    public boolean isAnimable() {
+        return mAnimable;
+    }
+
+    public @Retention
+    int getRetention() {
+        return mRetention;
+    }
+
+    @Nullable
+    public String getStatusViewConstructorClassname() {
+        return mStatusViewConstructorClassname;
+    }
+
+    public @XmlRes
+    int getStatusViewConstructorInflaterXml() {
+        return mStatusViewConstructorInflaterXml;
+    }
+
+    public @Overlay
+    int getOverlay(@StatusLayout.LayoutStatus int status) {
+        switch (status) {
+            case StatusLayout.LayoutStatus.ERROR:
+                return mErrorOverlay;
+            case StatusLayout.LayoutStatus.EMPTY:
+                return mEmptyOverlay;
+            case StatusLayout.LayoutStatus.LOADING:
+                return mLoadingOverlay;
+            case StatusLayout.LayoutStatus.NORMAL:
+            case StatusLayout.LayoutStatus.NONE:
+            default:
+                return OVERLAY_NONE;
+        }
+    }
+
+    //status状态下normal view(或attach的target)的可见性:OVERLAY_INVISIBLE和OVERLAY_VISIBLE时normal view保持测量和布局,切换回NORMAL时不需要重新布局
+    int getNormalVisibility(@StatusLayout.LayoutStatus int status) {
+        if (status == StatusLayout.LayoutStatus.NORMAL) {
+            return View.VISIBLE;
+        }
+
+        switch (getOverlay(status)) {
+            case OVERLAY_VISIBLE:
+                return View.VISIBLE;
+            case OVERLAY_INVISIBLE:
+                return View.INVISIBLE;
+            case OVERLAY_NONE:
+            default:
+                return View.GONE;
+        }
+    }
+
+    Animator newShowAnim(Context context) {
+        if (mShowAnimRes == -1) {
+            ObjectAnimator animator = new ObjectAnimator();
+            animator.setDuration(mAnimDuration);
+            animator.setProperty(View.ALPHA);
+            animator.setFloatValues(0f, 1f);
+
+            return animator;
+        } else {
+            return AnimatorInflater.loadAnimator(context, mShowAnimRes);
+        }
+    }
+
+    Animator newHideAnim(Context context) {
+        if (mHideAnimRes == -1) {
+            ObjectAnimator animator = new ObjectAnimator();
+            animator.setDuration(mAnimDuration);
+            animator.setProperty(View.ALPHA);
+            animator.setFloatValues(1f, 0f);
+
+            return animator;
+        } else {
+            return AnimatorInflater.loadAnimator(context, mHideAnimRes);
+        }
+    }
+
+    //每个布局各自创建constructor并使用布局的context解析xml,constructor可以保存布局相关的状态和主题属性;
+    //ISharedStatusChildViewConstructor只创建一次并使用applicationContext解析xml,避免缓存持有Activity
+    synchronized StatusChildViewConstructor newStatusViewConstructor(Context context) {
+        if (mConstructor != null) return mConstructor;
+        if (mSharedConstructor != null) return mSharedConstructor;
+
+        if (mStatusViewConstructorClassname != null) {
+            if (mConstructorClassNotFound) return HOLDER;
+
+            if (mConstructorClass == null) {
+                try {
+                    mConstructorClass = Class.forName(mStatusViewConstructorClassname);
+                } catch (Throwable e) {
+                    Log.e(TAG, "load " + mStatusViewConstructorClassname + " failed", e);
+                    mConstructorClassNotFound = true;
+                    return HOLDER;
+                }
+            }
+
+            //实例化或解析xml失败只影响当前布局,不缓存
+            try {
+                StatusChildViewConstructor constructor = (StatusChildViewConstructor) mConstructorClass.newInstance();
+                boolean shared = constructor instanceof ISharedStatusChildViewConstructor;
+                int xml = mStatusViewConstructorInflaterXml;
+                if (xml != 0) {
+                    Context inflateContext = shared ? context.getApplicationContext() : context;
+                    try (XmlResourceParser parser = inflateContext.getResources().getXml(xml)) {
+                        constructor.inflate(inflateContext, parser);
+                    }
+                }
+
+                if (shared) {
+                    mSharedConstructor = constructor;
+                }
+                return constructor;
+            } catch (Throwable e) {
+                Log.e(TAG, "create " + mStatusViewConstructorClassname + " failed", e);
+                return HOLDER;
+            }
+        }
+
+        throw new RuntimeException("please set attr statusViewConstructorClassname");
+    }
+
+    public static final class Builder {
+        private @StatusLayout.LayoutStatus
+        int mStatus = StatusLayout.LayoutStatus.LOADING;
+        private @AnimatorRes
+        int mShowAnimRes = -1;
+        private @AnimatorRes
+        int mHideAnimRes = -1;
+        private int mAnimDuration = DEFAULT_ANIM_DURATION;
+        private boolean mAnimable = true;
+        private @Retention
+        int mRetention = RETENTION_KEEP;
+        private String mStatusViewConstructorClassname;
+        private @XmlRes
+        int mStatusViewConstructorInflaterXml;
+        private @Overlay
+        int mErrorOverlay = OVERLAY_NONE;
+        private @Overlay
+        int mEmptyOverlay = OVERLAY_NONE;
+        private @Overlay
+        int mLoadingOverlay = OVERLAY_NONE;
+        private StatusChildViewConstructor mConstructor;
+
+        public Builder() {
+        }
+
+        public Builder(@NonNull StatusLayoutConfig config) {
+            mStatus = config.mStatus;
+            mShowAnimRes = config.mShowAnimRes;
+            mHideAnimRes = config.mHideAnimRes;
+            mAnimDuration = config.mAnimDuration;
+            mAnimable = config.mAnimable;
+            mRetention = config.mRetention;
+            mStatusViewConstructorClassname = config.mStatusViewConstructorClassname;
+            mStatusViewConstructorInflaterXml = config.mStatusViewConstructorInflaterXml;
+            mErrorOverlay = config.mErrorOverlay;
+            mEmptyOverlay = config.mEmptyOverlay;
+            mLoadingOverlay = config.mLoadingOverlay;
+            mConstructor = config.mConstructor;
+        }
+
+        public Builder setStatus(@StatusLayout.LayoutStatus int status) {
+            mStatus = status;
+            return this;
+        }
+
+        public Builder setShowAnimRes(@AnimatorRes int showAnimRes) {
+            mShowAnimRes = showAnimRes;
+            return this;
+        }
+
+        public Builder setHideAnimRes(@AnimatorRes int hideAnimRes) {
+            mHideAnimRes = hideAnimRes;
+            return this;
+        }
+
+        public Builder setAnimDuration(int animDuration) {
+            mAnimDuration = animDuration;
+            return this;
+        }
+
+        public Builder setAnimable(boolean animable) {
+            mAnimable = animable;
+            return this;
+        }
+
+        public Builder setRetention(@Retention int retention) {
+            mRetention = retention;
+            return this;
+        }
+
+        //constructor实例由使用这个配置的所有布局共享,inflate不会被调用
+        public Builder setStatusViewConstructor(@Nullable StatusChildViewConstructor constructor) {
+            mConstructor = constructor;
+            return this;
+        }
+
+        public Builder setStatusViewConstructorClassname(@Nullable String classname, @XmlRes int inflaterXml) {
+            mStatusViewConstructorClassname = classname;
+            mStatusViewConstructorInflaterXml = inflaterXml;
+            mConstructor = null;
+            return this;
+        }
+
+        public Builder setOverlay(@StatusLayout.LayoutStatus int status, @Overlay int overlay) {
+            switch (status) {
+                case StatusLayout.LayoutStatus.ERROR:
+                    mErrorOverlay = overlay;
+                    break;
+                case StatusLayout.LayoutStatus.EMPTY:
+                    mEmptyOverlay = overlay;
+                    break;
+                case StatusLayout.LayoutStatus.LOADING:
+                    mLoadingOverlay = overlay;
+                    break;
+                default:
+                    throw new IllegalArgumentException("status " + status + " can not overlay");
+            }
+            return this;
+        }
+
+        public StatusLayoutConfig build() {
+            return new StatusLayoutConfig(this);
+        }
+    }
+
+    private static final StatusChildViewConstructor HOLDER = new StatusChildViewConstructor() {
+        @Override
+        public void inflate(Context context, XmlResourceParser parser) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public IStatusChildView newErrorView(Context context) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public IStatusChildView newEmptyView(Context context) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public IStatusChildView newLoadingView(Context context) {
+            throw new UnsupportedOperationException();
+        }
+    };
+}
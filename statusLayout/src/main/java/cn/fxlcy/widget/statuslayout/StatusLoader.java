@@ -0,0 +1,186 @@
+package cn.fxlcy.widget.statuslayout;
+
+import android.os.Process;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//在共享线程池中执行加载任务,并把结果映射为状态
+final class StatusLoader {
+
+    private final static int QUEUE_CAPACITY = 128;
+    private final static long KEEP_ALIVE_SECONDS = 30;
+
+    private static ThreadPoolExecutor sExecutor;
+
+    private final StatusLayout mLayout;
+
+    private Request<?> mRequest;
+
+    StatusLoader(StatusLayout layout) {
+        mLayout = layout;
+    }
+
+    //load()共用的后台线程池
+    private static synchronized ThreadPoolExecutor executor() {
+        if (sExecutor == null) {
+            int poolSize = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+            sExecutor = new ThreadPoolExecutor(poolSize, poolSize,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(QUEUE_CAPACITY), new ThreadFactory() {
+                private final AtomicInteger mCount = new AtomicInteger(1);
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(() -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }, "StatusLayout-load-" + mCount.getAndIncrement());
+                }
+            });
+            sExecutor.allowCoreThreadTimeOut(true);
+        }
+        return sExecutor;
+    }
+
+    <T> void load(Callable<T> task, StatusLayout.EmptyPredicate<T> emptyPredicate,
+                  StatusLayout.OnLoadedListener<T> listener, long timeoutMillis) {
+        cancel();
+
+        Request<T> request = new Request<>(this, task, emptyPredicate, listener);
+        mRequest = request;
+
+        try {
+            request.mFuture = executor().submit(request);
+        } catch (RejectedExecutionException e) {
+            mRequest = null;
+            mLayout.error();
+            return;
+        }
+
+        if (timeoutMillis > 0) {
+            MainHandler.get().postDelayed(request.mTimeout, timeoutMillis);
+        }
+    }
+
+    boolean isLoading() {
+        return mRequest != null;
+    }
+
+    void cancel() {
+        if (mRequest != null) {
+            mRequest.cancel();
+            mRequest = null;
+        }
+    }
+
+    private <T> void onFinished(Request<T> request) {
+        mRequest = null;
+
+        if (request.mError != null) {
+            mLayout.error();
+            return;
+        }
+
+        T result = request.mResult;
+        if (result == null || (request.mEmptyPredicate != null && request.mEmptyPredicate.isEmpty(result))) {
+            mLayout.empty();
+            return;
+        }
+
+        if (request.mListener != null) {
+            request.mListener.onLoaded(result);
+        }
+        mLayout.normal();
+    }
+
+    private void onTimeout(Request<?> request) {
+        request.cancel();
+        mRequest = null;
+        mLayout.error();
+    }
+
+    private static final class Request<T> implements Runnable {
+        //取消后置空,避免后台线程继续持有StatusLayout
+        private volatile StatusLoader mLoader;
+        private volatile boolean mCancelled = false;
+
+        private final Callable<T> mTask;
+        private final StatusLayout.EmptyPredicate<T> mEmptyPredicate;
+        private final StatusLayout.OnLoadedListener<T> mListener;
+
+        private Future<?> mFuture;
+
+        private T mResult;
+        private Throwable mError;
+
+        private final Runnable mDeliver = new Runnable() {
+            @Override
+            public void run() {
+                StatusLoader loader = mLoader;
+                if (mCancelled || loader == null) {
+                    return;
+                }
+
+                MainHandler.get().removeCallbacks(mTimeout);
+                mLoader = null;
+                loader.onFinished(Request.this);
+            }
+        };
+
+        private final Runnable mTimeout = new Runnable() {
+            @Override
+            public void run() {
+                StatusLoader loader = mLoader;
+                if (mCancelled || loader == null) {
+                    return;
+                }
+
+                loader.onTimeout(Request.this);
+            }
+        };
+
+        Request(StatusLoader loader, Callable<T> task, StatusLayout.EmptyPredicate<T> emptyPredicate,
+                StatusLayout.OnLoadedListener<T> listener) {
+            mLoader = loader;
+            mTask = task;
+            mEmptyPredicate = emptyPredicate;
+            mListener = listener;
+        }
+
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+
+            try {
+                mResult = mTask.call();
+            } catch (Throwable e) {
+                mError = e;
+            }
+
+            if (!mCancelled) {
+                MainHandler.get().post(mDeliver);
+            }
+        }
+
+        void cancel() {
+            mCancelled = true;
+            mLoader = null;
+
+            MainHandler.get().removeCallbacks(mTimeout);
+            MainHandler.get().removeCallbacks(mDeliver);
+
+            if (mFuture != null) {
+                mFuture.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package cn.fxlcy.widget.statuslayout;
+
+import android.text.TextUtils;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+//不可变的状态内容,为null/0的字段表示使用状态view自身的默认值
+public final class StatusPayload {
+
+    public final static int FIELD_TEXT = 1;
+    public final static int FIELD_ICON = 1 << 1;
+    public final static int FIELD_ACTION_LABEL = 1 << 2;
+    public final static int FIELD_EXTRA = 1 << 3;
+
+    @IntDef(flag = true, value = {FIELD_TEXT, FIELD_ICON, FIELD_ACTION_LABEL, FIELD_EXTRA})
+    public @interface Field {
+    }
+
+    public final static StatusPayload DEFAULT = new Builder().build();
+
+    private final CharSequence mText;
+    private final @DrawableRes
+    int mIcon;
+    private final CharSequence mActionLabel;
+    private final Object mExtra;
+
+    private StatusPayload(Builder builder) {
+        mText = builder.mText;
+        mIcon = builder.mIcon;
+        mActionLabel = builder.mActionLabel;
+        mExtra = builder.mExtra;
+    }
+
+    @NonNull
+    public static StatusPayload text(@Nullable CharSequence text) {
+        return text == null ? DEFAULT : new Builder().setText(text).build();
+    }
+
+    @Nullable
+    public CharSequence getText() {
+        return mText;
+    }
+
+    public @DrawableRes
+    int getIcon() {
+        return mIcon;
+    }
+
+    @Nullable
+    public CharSequence getActionLabel() {
+        return mActionLabel;
+    }
+
+    @Nullable
+    public Object getExtra() {
+        return mExtra;
+    }
+
+    //返回两个payload之间发生变化的字段,不分配对象
+    public static @Field
+    int diff(@Nullable StatusPayload old, @Nullable StatusPayload payload) {
+        //null等同于DEFAULT
+        if (old == null) {
+            old = DEFAULT;
+        }
+        if (payload == null) {
+            payload = DEFAULT;
+        }
+
+        if (old == payload) {
+            return 0;
+        }
+
+        int changed = 0;
+        if (!TextUtils.equals(old.mText, payload.mText)) {
+            changed |= FIELD_TEXT;
+        }
+        if (old.mIcon != payload.mIcon) {
+            changed |= FIELD_ICON;
+        }
+        if (!TextUtils.equals(old.mActionLabel, payload.mActionLabel)) {
+            changed |= FIELD_ACTION_LABEL;
+        }
+        if (old.mExtra != payload.mExtra && (old.mExtra == null || !old.mExtra.equals(payload.mExtra))) {
+            changed |= FIELD_EXTRA;
+        }
+        return changed;
+    }
+
+    public static final class Builder {
+        private CharSequence mText;
+        private @DrawableRes
+        int mIcon;
+        private CharSequence mActionLabel;
+        private Object mExtra;
+
+        public Builder() {
+        }
+
+        public Builder(@NonNull StatusPayload payload) {
+            mText = payload.mText;
+            mIcon = payload.mIcon;
+            mActionLabel = payload.mActionLabel;
+            mExtra = payload.mExtra;
+        }
+
+        public Builder setText(@Nullable CharSequence text) {
+            mText = text;
+            return this;
+        }
+
+        public Builder setIcon(@DrawableRes int icon) {
+            mIcon = icon;
+            return this;
+        }
+
+        public Builder setActionLabel(@Nullable CharSequence actionLabel) {
+            mActionLabel = actionLabel;
+            return this;
+        }
+
+        public Builder setExtra(@Nullable Object extra) {
+            mExtra = extra;
+            return this;
+        }
+
+        public StatusPayload build() {
+            return new StatusPayload(this);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package cn.fxlcy.widget.statuslayout;
+
+import android.content.Context;
+import android.os.Build;
+import android.text.TextUtils;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+//一个状态view最后一次应用的payload,用来和下一次的payload做diff;StatusLayout和StatusAttachment共用
+final class StatusPayloadState {
+    private StatusPayload mPayload;
+
+    //IText第一次应用payload之前的文字,payload没有文字时恢复为它
+    private CharSequence mDefaultText;
+
+    private StatusTextPrecomputer mTextPrecomputer;
+
+    //返回发生变化的字段
+    private int update(View view, @NonNull StatusPayload payload) {
+        final StatusPayload old = mPayload;
+        if (old == null && view instanceof IText) {
+            mDefaultText = ((IText) view).getText();
+        }
+        mPayload = payload;
+        return StatusPayload.diff(old, payload);
+    }
+
+    private CharSequence getText() {
+        CharSequence text = mPayload.getText();
+        return text != null ? text : mDefaultText;
+    }
+
+    //应用payload:文字通过IText设置,其他变化的字段交给IStatusPayloadView
+    void apply(View view, IStatusChildView childView, @NonNull StatusPayload payload) {
+        final int changedFields = update(view, payload);
+        //没有变化的字段时不再设置,避免重新布局
+        if (changedFields == 0) {
+            return;
+        }
+
+        final IStatusPayloadView payloadView = getPayloadView(view, childView);
+        int bindFields = changedFields;
+        if ((changedFields & StatusPayload.FIELD_TEXT) != 0 && isTextViaIText(view, payloadView)) {
+            setText(view, getText());
+            bindFields &= ~StatusPayload.FIELD_TEXT;
+        }
+
+        if (payloadView != null && bindFields != 0) {
+            payloadView.onBindPayload(payload, bindFields);
+        }
+    }
+
+    private void setText(View view, CharSequence text) {
+        final TextView textView = getPrecomputeTarget(view);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P && mTextPrecomputer != null && textView != null) {
+            mTextPrecomputer.cancel(textView);
+        }
+
+        //文字没有变化时不再设置,避免TextView重新布局
+        if (text != null && !TextUtils.equals(text, ((IText) view).getText())) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P && textView != null) {
+                //不在切换动画开始的这一帧测量文字
+                if (mTextPrecomputer == null) {
+                    mTextPrecomputer = new StatusTextPrecomputer();
+                }
+                mTextPrecomputer.setText(textView, text);
+            } else {
+                ((IText) view).setText(text);
+            }
+        }
+    }
+
+    //立即同步设置等待中的文字,detach时调用
+    void flushText() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P && mTextPrecomputer != null) {
+            mTextPrecomputer.flush();
+        }
+    }
+
+    //可以预先计算文字布局的TextView
+    @Nullable
+    private static TextView getPrecomputeTarget(View view) {
+        if (view instanceof IPrecomputableText) {
+            return ((IPrecomputableText) view).getTextView();
+        } else if (view instanceof TextView) {
+            return (TextView) view;
+        }
+        return null;
+    }
+
+    @Nullable
+    static IStatusChildViewLifecycle getLifecycle(View view, IStatusChildView childView) {
+        if (view instanceof IStatusChildViewLifecycle) {
+            return (IStatusChildViewLifecycle) view;
+        } else if (childView instanceof IStatusChildViewLifecycle) {
+            return (IStatusChildViewLifecycle) childView;
+        }
+        return null;
+    }
+
+    @Nullable
+    private static IStatusPayloadView getPayloadView(View view, IStatusChildView childView) {
+        if (view instanceof IStatusPayloadView) {
+            return (IStatusPayloadView) view;
+        } else if (childView instanceof IStatusPayloadView) {
+            return (IStatusPayloadView) childView;
+        }
+        return null;
+    }
+
+    //文字是否通过IText设置:没有实现IStatusPayloadView,或者实现了IPrecomputableText
+    private static boolean isTextViaIText(View view, @Nullable IStatusPayloadView payloadView) {
+        return view instanceof IText && (payloadView == null || view instanceof IPrecomputableText);
+    }
+
+    //把error(Object)等的参数转换成payload;和上一次的文字相同时复用上一次的payload,不分配对象
+    @NonNull
+    static StatusPayload toPayload(Context context, Object obj, @Nullable StatusPayloadState state) {
+        if (obj instanceof StatusPayload) {
+            return (StatusPayload) obj;
+        }
+
+        final CharSequence text;
+        if (obj instanceof Integer) {
+            text = context.getString((Integer) obj);
+        } else if (obj instanceof CharSequence) {
+            text = (CharSequence) obj;
+        } else {
+            return StatusPayload.DEFAULT;
+        }
+
+        final StatusPayload last = state != null ? state.mPayload : null;
+        if (last != null && StatusPayload.diff(last, StatusPayload.DEFAULT) == StatusPayload.FIELD_TEXT
+                && TextUtils.equals(last.getText(), text)) {
+            return last;
+        }
+        return StatusPayload.text(text);
+    }
+}
@@ -0,0 +1,187 @@
+package cn.fxlcy.widget.statuslayout;
+
+import android.os.Build;
+import android.os.Process;
+import android.text.PrecomputedText;
+import android.text.TextUtils;
+import android.util.LruCache;
+import android.view.Choreographer;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.RequiresApi;
+
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+//在后台线程计算状态文字的布局(PrecomputedText),计算完成后再设置;下一帧之前没有完成则同步设置
+@RequiresApi(Build.VERSION_CODES.P)
+final class StatusTextPrecomputer {
+
+    private final static int CACHE_SIZE = 32;
+
+    //只缓存String,Spanned的样式不参与比较
+    private final static LruCache<Key, PrecomputedText> sCache = new LruCache<>(CACHE_SIZE);
+
+    private final static long KEEP_ALIVE_SECONDS = 30;
+
+    //单独的后台线程,不和load()的任务竞争线程池,否则较慢的加载会让文字计算都退回到同步设置
+    private static ThreadPoolExecutor sExecutor;
+
+    private final ArrayList<Request> mPending = new ArrayList<>(2);
+
+    private static synchronized ThreadPoolExecutor executor() {
+        if (sExecutor == null) {
+            sExecutor = new ThreadPoolExecutor(1, 1,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> new Thread(() -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }, "StatusLayout-text"));
+            sExecutor.allowCoreThreadTimeOut(true);
+        }
+        return sExecutor;
+    }
+
+    void setText(TextView view, CharSequence text) {
+        cancel(view);
+
+        PrecomputedText.Params params = view.getTextMetricsParams();
+
+        if (text instanceof String) {
+            PrecomputedText cached = sCache.get(new Key(text, params));
+            if (cached != null) {
+                view.setText(cached);
+                return;
+            }
+        }
+
+        Request request = new Request(view, text, params);
+        try {
+            executor().execute(request);
+        } catch (RejectedExecutionException e) {
+            view.setText(text);
+            return;
+        }
+
+        mPending.add(request);
+        Choreographer.getInstance().postFrameCallback(request);
+    }
+
+    void cancel(View view) {
+        for (int i = mPending.size() - 1; i >= 0; i--) {
+            Request request = mPending.get(i);
+            if (request.mView == view) {
+                request.cancel();
+                mPending.remove(i);
+            }
+        }
+    }
+
+    //立即同步设置所有等待中的文字
+    void flush() {
+        for (int i = mPending.size() - 1; i >= 0; i--) {
+            Request request = mPending.remove(i);
+            request.cancel();
+            request.mView.setText(request.mText);
+        }
+    }
+
+    private final class Request implements Runnable, Choreographer.FrameCallback {
+        private final TextView mView;
+        private final CharSequence mText;
+        private final PrecomputedText.Params mParams;
+
+        private volatile boolean mDone = false;
+        private volatile PrecomputedText mResult;
+
+        private final Runnable mDeliver = new Runnable() {
+            @Override
+            public void run() {
+                if (mDone) {
+                    return;
+                }
+
+                finish();
+
+                PrecomputedText result = mResult;
+                //TextView的参数在计算期间改变时PrecomputedText不能再使用
+                if (result.getParams().equals(mView.getTextMetricsParams())) {
+                    mView.setText(result);
+                } else {
+                    mView.setText(mText);
+                }
+            }
+        };
+
+        Request(TextView view, CharSequence text, PrecomputedText.Params params) {
+            mView = view;
+            mText = text;
+            mParams = params;
+        }
+
+        //后台线程
+        @Override
+        public void run() {
+            if (mDone) {
+                return;
+            }
+
+            PrecomputedText result = PrecomputedText.create(mText, mParams);
+            if (mText instanceof String) {
+                sCache.put(new Key(mText, mParams), result);
+            }
+
+            mResult = result;
+            MainHandler.get().post(mDeliver);
+        }
+
+        //下一帧还没有计算完成,同步设置
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mDone) {
+                return;
+            }
+
+            finish();
+            mView.setText(mText);
+        }
+
+        private void finish() {
+            mPending.remove(this);
+            cancel();
+        }
+
+        void cancel() {
+            mDone = true;
+            Choreographer.getInstance().removeFrameCallback(this);
+            MainHandler.get().removeCallbacks(mDeliver);
+        }
+    }
+
+    private static final class Key {
+        private final CharSequence mText;
+        private final PrecomputedText.Params mParams;
+
+        Key(CharSequence text, PrecomputedText.Params params) {
+            mText = text;
+            mParams = params;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return TextUtils.equals(mText, key.mText) && mParams.equals(key.mParams);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mText.hashCode() + mParams.hashCode();
+        }
+    }
+}
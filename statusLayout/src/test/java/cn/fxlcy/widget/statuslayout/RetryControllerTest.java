@@ -0,0 +1,101 @@
+package cn.fxlcy.widget.statuslayout;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RetryControllerTest {
+
+    private FakeHost mHost;
+    private RetryController mController;
+
+    @Before
+    public void setUp() {
+        mHost = new FakeHost();
+        mController = new RetryController(mHost);
+        mHost.mStatus = StatusLayout.LayoutStatus.ERROR;
+    }
+
+    @Test
+    public void retryWithoutStatusChangeIsReleased() {
+        //例如只提示了离线,没有重新加载
+        int[] clicks = new int[1];
+        View.OnClickListener retry = mController.wrapRetryListener(v -> clicks[0]++);
+
+        retry.onClick(null);
+        assertFalse(mController.isInFlight());
+
+        retry.onClick(null);
+        assertEquals(2, clicks[0]);
+    }
+
+    @Test
+    public void loadingRetryStaysInFlight() {
+        mHost.mShowLoading = true;
+        int[] clicks = new int[1];
+        View.OnClickListener retry = mController.wrapRetryListener(v -> clicks[0]++);
+
+        retry.onClick(null);
+        retry.onClick(null);
+        assertTrue(mController.isInFlight());
+        assertEquals(1, clicks[0]);
+
+        mHost.mStatus = StatusLayout.LayoutStatus.NORMAL;
+        mController.onStatusRequested(StatusLayout.LayoutStatus.NORMAL);
+        assertFalse(mController.isInFlight());
+    }
+
+    @Test
+    public void networkRetryWorksAfterReleasedRetry() {
+        mController.wrapRetryListener(v -> {
+        }).onClick(null);
+
+        mController.onNetworkAvailable();
+        assertEquals(1, mHost.mRetryCount);
+    }
+
+    class FakeHost implements RetryController.Host {
+        int mStatus;
+        int mRetryCount;
+        //模拟有loading view的布局
+        boolean mShowLoading;
+
+        @Override
+        public Context getContext() {
+            return ApplicationProvider.getApplicationContext();
+        }
+
+        @Override
+        public int getWhenStatus() {
+            return mStatus;
+        }
+
+        @Override
+        public void onRetryStarted() {
+            if (mShowLoading) {
+                mStatus = StatusLayout.LayoutStatus.LOADING;
+                mController.onStatusRequested(StatusLayout.LayoutStatus.LOADING);
+            }
+        }
+
+        @Override
+        public void performRetry() {
+            mRetryCount++;
+        }
+
+        @Override
+        public void dispatchRetryCountdown(long remainingMillis) {
+        }
+    }
+}
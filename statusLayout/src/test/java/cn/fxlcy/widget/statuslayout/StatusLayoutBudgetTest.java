@@ -0,0 +1,520 @@
+package cn.fxlcy.widget.statuslayout;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.XmlResourceParser;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 状态切换热路径的性能预算:每次切换的内存分配、requestLayout次数、文字重新设置次数以及状态view的创建次数
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+@Config(sdk = 28)
+public class StatusLayoutBudgetTest {
+
+    private static final int MAX_REQUEST_LAYOUT_PER_SWITCH = 1;
+
+    //最小的java对象,每次切换多分配一个对象时平均值至少增加这么多
+    private static final long MIN_OBJECT_BYTES = 16;
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 200;
+    private static final int TRIALS = 5;
+
+    private static final String ERROR_TEXT = "network error";
+    private static final String LOADING_TEXT = "loading";
+    //提前装箱,测量的是库中的分配而不是调用方的装箱
+    private static final Integer EMPTY_TEXT_RES = android.R.string.ok;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Activity mActivity;
+    private CountingConstructor mConstructor;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        mConstructor = new CountingConstructor();
+    }
+
+    @Test
+    public void statusViewsAreInflatedOnce() {
+        CountingStatusLayout layout = newLayout(false);
+
+        for (int i = 0; i < ROUNDS; i++) {
+            layout.error();
+            layout.empty();
+            layout.loading();
+            layout.normal();
+        }
+
+        assertEquals(1, mConstructor.mErrorCount);
+        assertEquals(1, mConstructor.mEmptyCount);
+        assertEquals(1, mConstructor.mLoadingCount);
+    }
+
+    @Test
+    public void requestLayoutPerSwitchIsBounded() {
+        CountingStatusLayout layout = newLayout(false);
+        //先创建所有状态view
+        cycle(layout);
+        layoutPass(layout);
+
+        int switches = 0;
+        layout.mRequestLayoutCount = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            layout.error();
+            layoutPass(layout);
+            layout.empty();
+            layoutPass(layout);
+            layout.loading();
+            layoutPass(layout);
+            layout.normal();
+            layoutPass(layout);
+            switches += 4;
+        }
+
+        assertTrue("requestLayout calls: " + layout.mRequestLayoutCount + " for " + switches + " switches",
+                layout.mRequestLayoutCount <= switches * MAX_REQUEST_LAYOUT_PER_SWITCH);
+    }
+
+    @Test
+    public void repeatedTextIsNotReapplied() {
+        CountingStatusLayout layout = newLayout(false);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            textCycle(layout);
+            idle();
+            layoutPass(layout);
+        }
+
+        //同一状态下重复设置相同的文字,不切换状态view的可见性
+        assertRepeatedTextIsNotReapplied(layout, () -> layout.error(ERROR_TEXT));
+        assertRepeatedTextIsNotReapplied(layout, () -> layout.empty(EMPTY_TEXT_RES));
+        assertRepeatedTextIsNotReapplied(layout, () -> layout.loading(LOADING_TEXT));
+    }
+
+    private void assertRepeatedTextIsNotReapplied(StatusLayout layout, Runnable call) {
+        call.run();
+        idle();
+        layoutPass(layout);
+
+        mConstructor.resetTextCounts();
+        for (int i = 0; i < ROUNDS; i++) {
+            call.run();
+            idle();
+            layoutPass(layout);
+        }
+
+        assertEquals("text changes", 0, mConstructor.textChangedCount());
+        assertEquals("status TextView requestLayout", 0, mConstructor.requestLayoutCount());
+    }
+
+    @Test
+    public void textDoesNotAddStatusViewRelayout() {
+        //状态view的显示隐藏本身会requestLayout,带文字的切换不能比不带文字的切换更多
+        CountingStatusLayout plainLayout = newLayout(false);
+        CountingConstructor plainConstructor = mConstructor;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            cycle(plainLayout);
+            layoutPass(plainLayout);
+        }
+        plainConstructor.resetTextCounts();
+        for (int i = 0; i < ROUNDS; i++) {
+            cycle(plainLayout);
+            idle();
+            layoutPass(plainLayout);
+        }
+
+        mConstructor = new CountingConstructor();
+        CountingStatusLayout textLayout = newLayout(false);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            textCycle(textLayout);
+            idle();
+            layoutPass(textLayout);
+        }
+        mConstructor.resetTextCounts();
+        for (int i = 0; i < ROUNDS; i++) {
+            textCycle(textLayout);
+            idle();
+            layoutPass(textLayout);
+        }
+
+        assertEquals("text changes", 0, mConstructor.textChangedCount());
+        assertEquals("status TextView requestLayout",
+                plainConstructor.requestLayoutCount(), mConstructor.requestLayoutCount());
+    }
+
+    //framework中setVisibility、requestLayout等的分配(包括Robolectric的shadow)不属于库,
+    //和只做相同可见性变化的基准切换比较,平均每次切换多出一个对象就会超过MIN_OBJECT_BYTES
+    @Test
+    public void steadyStateSwitchAllocatesNoMoreThanBaseline() {
+        CountingStatusLayout layout = newLayout(false);
+        View[] baseline = newBaselineViews();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            cycle(layout);
+            baselineCycle(baseline);
+        }
+
+        long baselineBytes = measureMin(() -> {
+            for (int i = 0; i < ROUNDS; i++) {
+                baselineCycle(baseline);
+            }
+        });
+        long bytes = measureMin(() -> {
+            for (int i = 0; i < ROUNDS; i++) {
+                cycle(layout);
+            }
+        });
+
+        assertWithinBaseline(bytes, baselineBytes, ROUNDS * 4);
+    }
+
+    @Test
+    public void steadyStateTextSwitchAllocatesNoMoreThanBaseline() {
+        CountingStatusLayout layout = newLayout(false);
+        View[] baseline = newBaselineViews();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            layout.error(ERROR_TEXT);
+            layout.loading(LOADING_TEXT);
+            layout.normal();
+            baselineTextCycle(baseline);
+            idle();
+        }
+
+        long baselineBytes = measureMin(() -> {
+            for (int i = 0; i < ROUNDS; i++) {
+                baselineTextCycle(baseline);
+            }
+        });
+        long bytes = measureMin(() -> {
+            for (int i = 0; i < ROUNDS; i++) {
+                layout.error(ERROR_TEXT);
+                layout.loading(LOADING_TEXT);
+                layout.normal();
+            }
+        });
+
+        assertWithinBaseline(bytes, baselineBytes, ROUNDS * 3);
+    }
+
+    @Test
+    public void textResourceSwitchAllocatesNoMoreThanBaseline() {
+        CountingStatusLayout layout = newLayout(false);
+        View[] baseline = newBaselineViews();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            layout.empty(EMPTY_TEXT_RES);
+            layout.normal();
+            baselineResourceCycle(baseline);
+            idle();
+        }
+
+        //基准包括资源查找本身的分配
+        long baselineBytes = measureMin(() -> {
+            for (int i = 0; i < ROUNDS; i++) {
+                baselineResourceCycle(baseline);
+            }
+        });
+        long bytes = measureMin(() -> {
+            for (int i = 0; i < ROUNDS; i++) {
+                layout.empty(EMPTY_TEXT_RES);
+                layout.normal();
+            }
+        });
+
+        assertWithinBaseline(bytes, baselineBytes, ROUNDS * 2);
+    }
+
+    @Test
+    public void animatedTextSwitchAddsNoAllocation() {
+        CountingStatusLayout plainLayout = newLayout(true);
+        mActivity.setContentView(plainLayout);
+        idle();
+        long plainBytes = measureAnimatedSwitches(plainLayout, null);
+
+        CountingStatusLayout textLayout = newLayout(true);
+        mActivity.setContentView(textLayout);
+        idle();
+        long textBytes = measureAnimatedSwitches(textLayout, ERROR_TEXT);
+
+        assertWithinBaseline(textBytes, plainBytes, ROUNDS * 2);
+    }
+
+    //只测量切换调用本身,不包括动画帧;重复多次取最小值
+    private long measureAnimatedSwitches(StatusLayout layout, String errorText) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            animatedCycle(layout, errorText);
+        }
+
+        long min = Long.MAX_VALUE;
+        for (int trial = 0; trial < TRIALS; trial++) {
+            long bytes = 0;
+            for (int i = 0; i < ROUNDS; i++) {
+                bytes += measure(() -> error(layout, errorText));
+                //确认走的是动画路径
+                assertNotEquals(StatusLayout.LayoutStatus.ERROR, layout.getStatus());
+                idle();
+
+                bytes += measure(layout::normal);
+                idle();
+            }
+            min = Math.min(min, bytes);
+        }
+        return min;
+    }
+
+    //和库中的状态view相同类型的view,只切换可见性
+    private View[] newBaselineViews() {
+        FrameLayout parent = new FrameLayout(mActivity);
+        View[] views = {
+                new View(mActivity),
+                new CountingTextView(mActivity, "error"),
+                new CountingTextView(mActivity, "empty"),
+                new CountingTextView(mActivity, "loading")
+        };
+        for (View view : views) {
+            parent.addView(view);
+            view.setVisibility(View.GONE);
+        }
+        views[0].setVisibility(View.VISIBLE);
+        return views;
+    }
+
+    //和cycle()相同的可见性变化:normal -> error -> empty -> loading -> normal
+    private static void baselineCycle(View[] views) {
+        baselineSwitch(views[0], views[1]);
+        baselineSwitch(views[1], views[2]);
+        baselineSwitch(views[2], views[3]);
+        baselineSwitch(views[3], views[0]);
+    }
+
+    //normal -> error -> loading -> normal
+    private static void baselineTextCycle(View[] views) {
+        baselineSwitch(views[0], views[1]);
+        baselineSwitch(views[1], views[3]);
+        baselineSwitch(views[3], views[0]);
+    }
+
+    //normal -> empty -> normal,加上资源查找
+    private void baselineResourceCycle(View[] views) {
+        mActivity.getString(EMPTY_TEXT_RES);
+        baselineSwitch(views[0], views[2]);
+        baselineSwitch(views[2], views[0]);
+    }
+
+    private static void baselineSwitch(View from, View to) {
+        from.setVisibility(View.GONE);
+        to.setVisibility(View.VISIBLE);
+    }
+
+    private static void assertWithinBaseline(long bytes, long baselineBytes, int switches) {
+        long extraPerSwitch = (bytes - baselineBytes) / switches;
+        assertTrue("allocated " + bytes + " bytes, baseline " + baselineBytes + " bytes for " + switches
+                        + " switches (" + extraPerSwitch + " extra bytes per switch)",
+                extraPerSwitch < MIN_OBJECT_BYTES);
+    }
+
+    private CountingStatusLayout newLayout(boolean animable) {
+        StatusLayoutConfig config = new StatusLayoutConfig.Builder()
+                .setStatus(StatusLayout.LayoutStatus.NORMAL)
+                .setAnimable(animable)
+                .setStatusViewConstructor(mConstructor)
+                .build();
+
+        CountingStatusLayout layout = new CountingStatusLayout(mActivity, config);
+
+        StatusLayout.LayoutParams params = new StatusLayout.LayoutParams(
+                StatusLayout.LayoutParams.MATCH_PARENT, StatusLayout.LayoutParams.MATCH_PARENT);
+        params.setStatus(StatusLayout.LayoutStatus.NORMAL);
+        layout.addView(new View(mActivity), params);
+        return layout;
+    }
+
+    private static void cycle(StatusLayout layout) {
+        layout.error();
+        layout.empty();
+        layout.loading();
+        layout.normal();
+    }
+
+    private static void textCycle(StatusLayout layout) {
+        layout.error(ERROR_TEXT);
+        layout.empty(EMPTY_TEXT_RES);
+        layout.loading(LOADING_TEXT);
+        layout.normal();
+    }
+
+    private static void animatedCycle(StatusLayout layout, String errorText) {
+        error(layout, errorText);
+        idle();
+        layout.normal();
+        idle();
+    }
+
+    private static void error(StatusLayout layout, String errorText) {
+        if (errorText == null) {
+            layout.error();
+        } else {
+            layout.error(errorText);
+        }
+    }
+
+    private static void layoutPass(View view) {
+        int spec = View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY);
+        view.measure(spec, spec);
+        view.layout(0, 0, 1080, 1080);
+    }
+
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(1));
+    }
+
+    //JIT和GC会让单次测量偏大,重复多次取最小值
+    private static long measureMin(Runnable runnable) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < TRIALS; i++) {
+            min = Math.min(min, measure(runnable));
+        }
+        return min;
+    }
+
+    //返回runnable执行期间当前线程分配的字节数,扣除测量本身的分配
+    private static long measure(Runnable runnable) {
+        long calibrationStart = allocatedBytes();
+        long overhead = allocatedBytes() - calibrationStart;
+
+        long start = allocatedBytes();
+        runnable.run();
+        return Math.max(0, allocatedBytes() - start - overhead);
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    static class CountingStatusLayout extends StatusLayout {
+        int mRequestLayoutCount;
+
+        CountingStatusLayout(Context context, StatusLayoutConfig config) {
+            super(context, config);
+        }
+
+        @Override
+        public void requestLayout() {
+            mRequestLayoutCount++;
+            super.requestLayout();
+        }
+    }
+
+    //wrap_content的TextView每次设置新文字都会requestLayout
+    static class CountingTextView extends TextView implements IText {
+        int mTextChangedCount;
+        int mRequestLayoutCount;
+
+        CountingTextView(Context context, CharSequence text) {
+            super(context);
+            setText(text);
+            setLayoutParams(new ViewGroup.LayoutParams(
+                    ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        }
+
+        @Override
+        protected void onTextChanged(CharSequence text, int start, int lengthBefore, int lengthAfter) {
+            super.onTextChanged(text, start, lengthBefore, lengthAfter);
+            mTextChangedCount++;
+        }
+
+        @Override
+        public void requestLayout() {
+            mRequestLayoutCount++;
+            super.requestLayout();
+        }
+    }
+
+    static class CountingConstructor implements StatusChildViewConstructor {
+        int mErrorCount;
+        int mEmptyCount;
+        int mLoadingCount;
+
+        final CountingTextView[] mTextViews = new CountingTextView[3];
+
+        @Override
+        public void inflate(Context context, XmlResourceParser parser) {
+        }
+
+        @Override
+        public IStatusChildView newErrorView(Context context) {
+            mErrorCount++;
+            return newTextView(context, 0, "error");
+        }
+
+        @Override
+        public IStatusChildView newEmptyView(Context context) {
+            mEmptyCount++;
+            return newTextView(context, 1, "empty");
+        }
+
+        @Override
+        public IStatusChildView newLoadingView(Context context) {
+            mLoadingCount++;
+            return newTextView(context, 2, "loading");
+        }
+
+        private IStatusChildView newTextView(Context context, int index, CharSequence text) {
+            CountingTextView view = new CountingTextView(context, text);
+            mTextViews[index] = view;
+            return () -> view;
+        }
+
+        void resetTextCounts() {
+            for (CountingTextView view : mTextViews) {
+                if (view != null) {
+                    view.mTextChangedCount = 0;
+                    view.mRequestLayoutCount = 0;
+                }
+            }
+        }
+
+        int textChangedCount() {
+            int count = 0;
+            for (CountingTextView view : mTextViews) {
+                if (view != null) {
+                    count += view.mTextChangedCount;
+                }
+            }
+            return count;
+        }
+
+        int requestLayoutCount() {
+            int count = 0;
+            for (CountingTextView view : mTextViews) {
+                if (view != null) {
+                    count += view.mRequestLayoutCount;
+                }
+            }
+            return count;
+        }
+    }
+}